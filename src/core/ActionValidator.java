@@ -1,14 +1,12 @@
 package core;
 
-import java.util.Map;
-
 public class ActionValidator {
 
-    public static boolean canCreateArmy(Faction faction, int amount) {
+    public static boolean canCreateArmy(Faction faction, long amount) {
         return amount > 0 && amount <= faction.getPopulation();
     }
 
-    public static boolean canReinforceArmy(Faction faction, String armyId, int amount) {
+    public static boolean canReinforceArmy(Faction faction, String armyId, long amount) {
         if (amount <= 0 || amount > faction.getPopulation()) {
             return false;
         }
@@ -19,27 +17,15 @@ public class ActionValidator {
 
     public static boolean canQueueBuilding(Faction faction, String buildingType) {
         BuildingDefinition def = BuildingDefinition.get(buildingType);
-        if (def == null) {
-            return false;
-        }
-
-        if (faction.getBuildingQueue().size() >= faction.getMaxConcurrentBuildings()) {
-            return false;
-        }
-
-        Map<String, Integer> cost = def.getConstructionCost();
-        for (Map.Entry<String, Integer> entry : cost.entrySet()) {
-            if (!faction.getResources().hasResources(entry.getKey(), entry.getValue())) {
-                return false;
-            }
-        }
+        return def != null && canQueueBuilding(faction, def);
+    }
 
-        int totalResourcesUsed = 0;
-        for (Building building : faction.getBuildingQueue()) {
-            totalResourcesUsed++;
-        }
+    public static boolean canQueueBuilding(Faction faction, BuildingDefinition def) {
+        return canQueueBuilding(faction, def, faction.getBuildingQueueView().size(), faction.getResources());
+    }
 
-        return true;
+    static boolean canQueueBuilding(Faction faction, BuildingDefinition def, int queued, Resources resources) {
+        return queued < faction.getMaxConcurrentBuildings() && resources.canAfford(def.getConstructionCostVector());
     }
 
     public static boolean canUseActionPoints(Faction faction, int amount) {
@@ -56,8 +42,7 @@ public class ActionValidator {
     }
 
     public static boolean canDemolishBuilding(Faction faction, String buildingId) {
-        Building building = faction.getBuilding(buildingId);
-        return building != null;
+        return faction.getBuildingCount(buildingId) > 0;
     }
 
 }
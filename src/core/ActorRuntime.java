@@ -0,0 +1,97 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+public class ActorRuntime {
+
+    private final ExecutorService executor;
+    private final Map<Faction, FactionActor> actors;
+    private final Object barrierLock;
+    private final List<RuntimeException> failures;
+    private long pendingMessages;
+
+    public ActorRuntime(int threads) {
+        this(Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "faction-actor");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    public ActorRuntime(ExecutorService executor) {
+        this.executor = executor;
+        this.actors = new ConcurrentHashMap<>();
+        this.barrierLock = new Object();
+        this.failures = new ArrayList<>();
+        this.pendingMessages = 0;
+    }
+
+    public FactionActor actorFor(Faction faction) {
+        return actors.computeIfAbsent(faction, f -> new FactionActor(f, executor, this));
+    }
+
+    public void send(Faction faction, Consumer<Faction> message) {
+        actorFor(faction).tell(message);
+    }
+
+    public void awaitBarrier() {
+        List<RuntimeException> weekFailures;
+        synchronized (barrierLock) {
+            while (pendingMessages > 0) {
+                try {
+                    barrierLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for faction actors", e);
+                }
+            }
+            weekFailures = new ArrayList<>(failures);
+            failures.clear();
+            actors.clear();
+        }
+
+        if (!weekFailures.isEmpty()) {
+            RuntimeException first = weekFailures.get(0);
+            for (int i = 1; i < weekFailures.size(); i++) {
+                first.addSuppressed(weekFailures.get(i));
+            }
+            throw first;
+        }
+    }
+
+    void messageQueued() {
+        synchronized (barrierLock) {
+            pendingMessages++;
+        }
+    }
+
+    void messageProcessed() {
+        synchronized (barrierLock) {
+            pendingMessages--;
+            if (pendingMessages == 0) {
+                barrierLock.notifyAll();
+            }
+        }
+    }
+
+    void messageFailed(Faction faction, RuntimeException e) {
+        synchronized (barrierLock) {
+            failures.add(new IllegalStateException("Faction " + faction.getName() + ": " + e.getMessage(), e));
+        }
+    }
+
+    public int getActorCount() {
+        return actors.size();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+}
@@ -2,10 +2,11 @@ package core;
 
 public class Army {
 
-    private String id;
+    private int id;
+    private String key;
     private String name;
-    private int population;
-    private int might;
+    private long population;
+    private long might;
     private int mightModifier;
 
     public enum ArmyState {
@@ -18,30 +19,50 @@ public class Army {
     private ArmyState state;
     private String targetFaction;
     private int travelWeeksRemaining;
+    private long version;
 
-    public Army(String name, int population) {
+    public Army(String name, long population) {
         this.name = name;
-        this.id = name.toLowerCase().replace(" ", "_");
+        this.id = 0;
+        this.key = keyOf(name);
         this.population = population;
         this.might = population;
         this.mightModifier = 0;
         this.state = ArmyState.DEFENDING;
         this.targetFaction = null;
         this.travelWeeksRemaining = 0;
+        this.version = StateVersion.next();
     }
 
-    public void reinforce(int amount) {
-        this.population += amount;
+    public static String keyOf(String name) {
+        return name.toLowerCase().replace(" ", "_");
+    }
+
+    void setId(int id) {
+        this.id = id;
+        this.version = StateVersion.next();
+    }
+
+    void restoreState(int mightModifier, ArmyState state, String targetFaction, int travelWeeksRemaining) {
+        this.state = state;
+        this.targetFaction = targetFaction;
+        this.travelWeeksRemaining = travelWeeksRemaining;
+        setMightModifier(mightModifier);
+    }
+
+    public void reinforce(long amount) {
+        this.population = Saturating.add(population, amount);
         updateMight();
     }
 
-    public void takeCasualties(int amount) {
+    public void takeCasualties(long amount) {
         this.population = Math.max(0, this.population - amount);
         updateMight();
     }
 
     public void updateMight() {
-        this.might = population + mightModifier;
+        this.might = Saturating.add(population, mightModifier);
+        this.version = StateVersion.next();
     }
 
     public void setMightModifier(int modifier) {
@@ -49,23 +70,26 @@ public class Army {
         updateMight();
     }
 
-    public int getCarryingCapacity() {
+    public long getCarryingCapacity() {
         return population / 2;
     }
 
     public void setState(ArmyState state) {
         this.state = state;
+        this.version = StateVersion.next();
     }
 
     public void setTarget(String factionName, int weeksToTravel) {
         this.targetFaction = factionName;
         this.state = ArmyState.ATTACKING;
         this.travelWeeksRemaining = weeksToTravel;
+        this.version = StateVersion.next();
     }
 
     public void advanceTravelTime() {
         if (travelWeeksRemaining > 0) {
             travelWeeksRemaining--;
+            version = StateVersion.next();
         }
     }
 
@@ -75,21 +99,34 @@ public class Army {
 
     public void retreat() {
         this.state = ArmyState.RETREATING;
+        this.version = StateVersion.next();
     }
 
-    public String getId() {
+    public long getVersion() {
+        return version;
+    }
+
+    public int getId() {
         return id;
     }
 
+    public String getKey() {
+        return key;
+    }
+
+    public int getMightModifier() {
+        return mightModifier;
+    }
+
     public String getName() {
         return name;
     }
 
-    public int getPopulation() {
+    public long getPopulation() {
         return population;
     }
 
-    public int getMight() {
+    public long getMight() {
         return might;
     }
 
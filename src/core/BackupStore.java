@@ -0,0 +1,343 @@
+package core;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+public class BackupStore {
+
+    public static final int MANIFEST_MAGIC = 0x42524D4D;
+    public static final int MANIFEST_VERSION = 1;
+    public static final int INDEX_MAGIC = 0x42524D49;
+    public static final int INDEX_VERSION = 1;
+
+    private static final String BLOB_DIR = "blobs";
+    private static final String MANIFEST_DIR = "manifests";
+    private static final String INDEX_FILE = "index";
+    private static final String MANIFEST_PREFIX = "manifest.week_";
+    private static final Pattern MANIFEST_PATTERN = Pattern.compile("manifest\\.week_(\\d+)");
+    private static final int HASH_BYTES = 32;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final File root;
+    private TreeSet<Integer> index;
+
+    private static class Manifest {
+        int week;
+        int factionCount;
+        final Map<Integer, List<byte[]>> hashes = new LinkedHashMap<>();
+    }
+
+    public BackupStore(File root) {
+        this.root = root;
+    }
+
+    public synchronized void archive(File snapshot, int week) throws IOException {
+        archive(BinarySnapshot.read(snapshot), week);
+    }
+
+    public synchronized void archive(ByteBuffer snapshot, int week) throws IOException {
+        BinarySnapshot.Layout layout = BinarySnapshot.readLayout(snapshot);
+        Map<Integer, List<byte[]>> records = BinarySnapshot.records(layout);
+
+        List<List<byte[]>> columns = new ArrayList<>(records.values());
+        int rows = 0;
+        for (List<byte[]> column : columns) {
+            rows = Math.max(rows, column.size());
+        }
+        byte[][][] hashes = new byte[columns.size()][rows][];
+        FactionIO.forEachIndex(rows, row -> {
+            for (int c = 0; c < columns.size(); c++) {
+                if (row < columns.get(c).size()) {
+                    hashes[c][row] = hash(columns.get(c).get(row));
+                }
+            }
+        });
+
+        Map<String, byte[]> missing = new LinkedHashMap<>();
+        for (int c = 0; c < columns.size(); c++) {
+            for (int row = 0; row < columns.get(c).size(); row++) {
+                String hex = HEX.formatHex(hashes[c][row]);
+                byte[] record = columns.get(c).get(row);
+                File blob = getBlobFile(hex);
+                if (!missing.containsKey(hex) && (!blob.isFile() || blob.length() != record.length)) {
+                    missing.put(hex, record);
+                }
+            }
+        }
+        List<Map.Entry<String, byte[]>> writes = new ArrayList<>(missing.entrySet());
+        FactionIO.forEach(writes,
+                blob -> BinarySnapshot.write(ByteBuffer.wrap(blob.getValue()), getBlobFile(blob.getKey())));
+
+        SnapshotEncoder out = new SnapshotEncoder(1024);
+        out.writeInt(MANIFEST_MAGIC);
+        out.writeShort(MANIFEST_VERSION);
+        out.writeInt(week);
+        out.writeInt(layout.factionCount);
+        out.writeVarInt(records.size());
+        int c = 0;
+        for (Map.Entry<Integer, List<byte[]>> section : records.entrySet()) {
+            out.writeByte(section.getKey());
+            out.writeVarInt(section.getValue().size());
+            for (int row = 0; row < section.getValue().size(); row++) {
+                out.writeBytes(hashes[c][row]);
+            }
+            c++;
+        }
+        out.writeInt(out.checksum(0, out.position()));
+
+        BinarySnapshot.write(out.toByteBuffer(), getManifestFile(week));
+        if (index().add(week)) {
+            writeIndex();
+        }
+    }
+
+    public synchronized ByteBuffer read(int week) throws IOException {
+        Manifest manifest = readManifest(week);
+        List<List<byte[]>> columns = new ArrayList<>(manifest.hashes.values());
+        int rows = 0;
+        for (List<byte[]> column : columns) {
+            rows = Math.max(rows, column.size());
+        }
+        byte[][][] blobs = new byte[columns.size()][rows][];
+        FactionIO.forEachIndex(rows, row -> {
+            for (int c = 0; c < columns.size(); c++) {
+                if (row < columns.get(c).size()) {
+                    blobs[c][row] = readBlob(columns.get(c).get(row));
+                }
+            }
+        });
+
+        Map<Integer, List<byte[]>> records = new LinkedHashMap<>();
+        int c = 0;
+        for (Map.Entry<Integer, List<byte[]>> section : manifest.hashes.entrySet()) {
+            records.put(section.getKey(), Arrays.asList(blobs[c]).subList(0, section.getValue().size()));
+            c++;
+        }
+        return BinarySnapshot.assemble(manifest.week, manifest.factionCount, records);
+    }
+
+    public synchronized boolean contains(int week) {
+        return index().contains(week);
+    }
+
+    public synchronized List<Integer> listWeeks() {
+        return new ArrayList<>(index());
+    }
+
+    public synchronized int remove(Collection<Integer> weeks) throws IOException {
+        List<Integer> removed = new ArrayList<>();
+        for (int week : weeks) {
+            if (index().remove(week)) {
+                removed.add(week);
+            }
+        }
+        if (removed.isEmpty()) {
+            return 0;
+        }
+
+        writeIndex();
+        for (int week : removed) {
+            File manifest = getManifestFile(week);
+            if (!manifest.delete() && manifest.exists()) {
+                System.err.println("Failed to delete old backup: " + manifest.getName());
+            }
+        }
+        return removed.size();
+    }
+
+    public synchronized int collectGarbage() throws IOException {
+        Set<String> referenced = new HashSet<>();
+        for (int week : index()) {
+            for (List<byte[]> section : readManifest(week).hashes.values()) {
+                for (byte[] hash : section) {
+                    referenced.add(HEX.formatHex(hash));
+                }
+            }
+        }
+
+        int removed = 0;
+        File[] buckets = new File(root, BLOB_DIR).listFiles(File::isDirectory);
+        if (buckets == null) {
+            return 0;
+        }
+        for (File bucket : buckets) {
+            File[] blobs = bucket.listFiles();
+            if (blobs == null) continue;
+            for (File blob : blobs) {
+                if (!referenced.contains(blob.getName()) && blob.delete()) {
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    public synchronized int getBlobCount() {
+        int count = 0;
+        File[] buckets = new File(root, BLOB_DIR).listFiles(File::isDirectory);
+        if (buckets != null) {
+            for (File bucket : buckets) {
+                File[] blobs = bucket.listFiles((dir, name) -> !name.endsWith(".tmp"));
+                count += blobs == null ? 0 : blobs.length;
+            }
+        }
+        return count;
+    }
+
+    public File getManifestFile(int week) {
+        return new File(new File(root, MANIFEST_DIR), MANIFEST_PREFIX + week);
+    }
+
+    private TreeSet<Integer> index() {
+        if (index == null) {
+            try {
+                index = readIndex();
+            } catch (IOException e) {
+                index = scanManifests();
+                try {
+                    writeIndex();
+                } catch (IOException writeError) {
+                    System.err.println("Failed to write backup index: " + writeError.getMessage());
+                }
+            }
+        }
+        return index;
+    }
+
+    private TreeSet<Integer> readIndex() throws IOException {
+        File file = new File(root, INDEX_FILE);
+        if (!file.isFile()) {
+            throw new FileNotFoundException("Backup index not found");
+        }
+        SnapshotDecoder in = new SnapshotDecoder(readChecked(file));
+        if (in.readInt() != INDEX_MAGIC || in.readShort() > INDEX_VERSION) {
+            throw new IOException("Not a backup index: " + file.getName());
+        }
+        TreeSet<Integer> weeks = new TreeSet<>();
+        int count = in.readVarInt();
+        int week = 0;
+        for (int i = 0; i < count; i++) {
+            week += in.readVarInt();
+            weeks.add(week);
+        }
+        return weeks;
+    }
+
+    private void writeIndex() throws IOException {
+        SnapshotEncoder out = new SnapshotEncoder(64 + index.size() * 2);
+        out.writeInt(INDEX_MAGIC);
+        out.writeShort(INDEX_VERSION);
+        out.writeVarInt(index.size());
+        int previous = 0;
+        for (int week : index) {
+            out.writeVarInt(week - previous);
+            previous = week;
+        }
+        out.writeInt(out.checksum(0, out.position()));
+        BinarySnapshot.write(out.toByteBuffer(), new File(root, INDEX_FILE));
+    }
+
+    private TreeSet<Integer> scanManifests() {
+        TreeSet<Integer> weeks = new TreeSet<>();
+        File[] manifests = new File(root, MANIFEST_DIR).listFiles();
+        if (manifests != null) {
+            for (File manifest : manifests) {
+                Matcher matcher = MANIFEST_PATTERN.matcher(manifest.getName());
+                if (matcher.matches()) {
+                    weeks.add(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        return weeks;
+    }
+
+    private File getBlobFile(String hex) {
+        return new File(new File(new File(root, BLOB_DIR), hex.substring(0, 2)), hex);
+    }
+
+    private byte[] readBlob(byte[] hash) throws IOException {
+        String hex = HEX.formatHex(hash);
+        File blob = getBlobFile(hex);
+        if (!blob.isFile()) {
+            throw new FileNotFoundException("Backup blob is missing: " + hex);
+        }
+        byte[] record = Files.readAllBytes(blob.toPath());
+        if (!Arrays.equals(hash, hash(record))) {
+            throw new IOException("Backup blob is damaged: " + hex);
+        }
+        return record;
+    }
+
+    private Manifest readManifest(int week) throws IOException {
+        File file = getManifestFile(week);
+        if (!file.isFile()) {
+            throw new FileNotFoundException("No backups found for week " + week);
+        }
+
+        SnapshotDecoder in = new SnapshotDecoder(readChecked(file));
+        if (in.readInt() != MANIFEST_MAGIC) {
+            throw new IOException("Not a backup manifest: " + file.getName());
+        }
+        int version = in.readShort();
+        if (version > MANIFEST_VERSION) {
+            throw new IOException("Unsupported backup manifest version: " + version);
+        }
+
+        Manifest manifest = new Manifest();
+        manifest.week = in.readInt();
+        manifest.factionCount = in.readInt();
+        int sectionCount = in.readVarInt();
+        for (int s = 0; s < sectionCount; s++) {
+            int section = in.readByte();
+            int count = in.readVarInt();
+            List<byte[]> hashes = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                hashes.add(in.readBytes(HASH_BYTES));
+            }
+            manifest.hashes.put(section, hashes);
+        }
+        return manifest;
+    }
+
+    private static ByteBuffer readChecked(File file) throws IOException {
+        ByteBuffer data = BinarySnapshot.read(file);
+        if (data.remaining() < 4) {
+            throw new IOException("Backup file is truncated: " + file.getName());
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer body = data.duplicate();
+        body.limit(data.limit() - 4);
+        crc.update(body);
+        if ((int) crc.getValue() != data.getInt(data.limit() - 4)) {
+            throw new IOException("Backup file failed checksum: " + file.getName());
+        }
+        return data;
+    }
+
+    private static byte[] hash(byte[] record) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(record);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+}
@@ -0,0 +1,580 @@
+package core;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+public class BinarySnapshot {
+
+    public static final int MAGIC = 0x42524D42;
+    public static final int FOOTER_MAGIC = 0x42524D45;
+    public static final int VERSION = 2;
+
+    static final int SECTION_RESOURCE_TYPES = 1;
+    static final int SECTION_FACTIONS = 2;
+    static final int SECTION_RESOURCES = 3;
+    static final int SECTION_TRAITS = 4;
+    static final int SECTION_BUILDINGS = 5;
+    static final int SECTION_QUEUE = 6;
+    static final int SECTION_ARMIES = 7;
+    static final int SECTION_RESEARCH = 8;
+
+    private static final int[] SECTIONS = {
+            SECTION_RESOURCE_TYPES, SECTION_FACTIONS, SECTION_RESOURCES, SECTION_TRAITS,
+            SECTION_BUILDINGS, SECTION_QUEUE, SECTION_ARMIES, SECTION_RESEARCH
+    };
+    private static final int HEADER_SIZE = 16;
+    private static final int FOOTER_SIZE = 16;
+
+    static class Layout {
+        int version;
+        int week;
+        int factionCount;
+        final Map<Integer, ByteBuffer> sections = new HashMap<>();
+    }
+
+    private static int sectionEntrySize(int version) {
+        return version >= 2 ? 21 : 17;
+    }
+
+    public static boolean isSnapshot(File file) {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static void save(FactionRegistry registry, int week, File file) throws IOException {
+        save(registry, week, file, null);
+    }
+
+    public static void save(FactionRegistry registry, int week, File file, SnapshotCache cache) throws IOException {
+        write(encode(registry.getFactionsInOrder(), week, cache), file);
+    }
+
+    public static int load(FactionRegistry registry, File file) throws IOException {
+        if (!file.exists()) {
+            throw new FileNotFoundException("Snapshot not found: " + file.getName());
+        }
+        return decode(read(file), registry);
+    }
+
+    public static boolean verify(File file) {
+        if (!isSnapshot(file)) {
+            return false;
+        }
+        try {
+            readLayout(read(file));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static void write(ByteBuffer data, File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(parent.toPath());
+        File temp = new File(parent, file.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(parent);
+    }
+
+    static void syncDirectory(File directory) {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // directory sync is not supported on every platform
+        }
+    }
+
+    static ByteBuffer read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large: " + file.getName());
+            }
+            ByteBuffer data = ByteBuffer.allocate((int) size);
+            while (data.hasRemaining()) {
+                if (channel.read(data) < 0) {
+                    throw new IOException("Snapshot is truncated: " + file.getName());
+                }
+            }
+            data.flip();
+            return data;
+        }
+    }
+
+    static ByteBuffer encode(List<Faction> factions, int week, SnapshotCache cache) throws IOException {
+        if (cache != null) {
+            cache.retain(factions);
+        }
+
+        byte[][][] records = new byte[SECTIONS.length][factions.size()][];
+        FactionIO.forEachIndex(factions.size(), f -> {
+            Faction faction = factions.get(f);
+            SnapshotEncoder record = new SnapshotEncoder(512);
+            for (int i = 0; i < SECTIONS.length; i++) {
+                if (SECTIONS[i] == SECTION_RESOURCE_TYPES) {
+                    continue;
+                }
+                if (cache != null) {
+                    records[i][f] = cache.record(SECTIONS[i], faction);
+                } else {
+                    record.reset();
+                    encodeRecord(SECTIONS[i], faction, record);
+                    records[i][f] = record.toByteArray();
+                }
+            }
+        });
+
+        SnapshotEncoder resourceTypes = new SnapshotEncoder(64);
+        resourceTypes.writeVarInt(ResourceType.count());
+        for (int r = 0; r < ResourceType.count(); r++) {
+            resourceTypes.writeString(ResourceType.nameOf(r));
+        }
+
+        Map<Integer, List<byte[]>> sections = new LinkedHashMap<>();
+        for (int i = 0; i < SECTIONS.length; i++) {
+            sections.put(SECTIONS[i], SECTIONS[i] == SECTION_RESOURCE_TYPES
+                    ? Collections.singletonList(resourceTypes.toByteArray())
+                    : Arrays.asList(records[i]));
+        }
+        return assemble(week, factions.size(), sections);
+    }
+
+    static ByteBuffer assemble(int week, int factionCount, Map<Integer, List<byte[]>> records) throws IOException {
+        SnapshotEncoder out = new SnapshotEncoder(256 + factionCount * 512);
+        int tableEnd = writeHeader(out, week, factionCount);
+        for (int i = 0; i < SECTIONS.length; i++) {
+            int section = SECTIONS[i];
+            List<byte[]> sectionRecords = records.get(section);
+            int expected = section == SECTION_RESOURCE_TYPES ? 1 : factionCount;
+            if (sectionRecords == null || sectionRecords.size() != expected) {
+                throw new IOException("Snapshot section " + section + " has missing records");
+            }
+            int offset = out.position();
+            if (section == SECTION_RESOURCE_TYPES) {
+                out.writeBytes(sectionRecords.get(0));
+            } else {
+                for (byte[] record : sectionRecords) {
+                    out.writeVarInt(record.length);
+                    out.writeBytes(record);
+                }
+            }
+            finishSection(out, i, offset);
+        }
+        return finish(out, tableEnd);
+    }
+
+    static Map<Integer, List<byte[]>> records(Layout layout) throws IOException {
+        Map<Integer, List<byte[]>> records = new LinkedHashMap<>();
+        for (int section : SECTIONS) {
+            ByteBuffer data = layout.sections.get(section);
+            if (data == null) {
+                throw new IOException("Snapshot is missing section " + section);
+            }
+            List<byte[]> sectionRecords = new ArrayList<>();
+            SnapshotDecoder in = new SnapshotDecoder(data.duplicate());
+            if (section == SECTION_RESOURCE_TYPES) {
+                sectionRecords.add(in.readBytes(in.remaining()));
+            } else {
+                for (int i = 0; i < layout.factionCount; i++) {
+                    SnapshotDecoder record = in.readRecord();
+                    sectionRecords.add(record.readBytes(record.remaining()));
+                }
+            }
+            records.put(section, sectionRecords);
+        }
+        return records;
+    }
+
+    private static int writeHeader(SnapshotEncoder out, int week, int factionCount) {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(SECTIONS.length);
+        out.writeInt(week);
+        out.writeInt(factionCount);
+        for (int i = 0; i < SECTIONS.length; i++) {
+            out.writeByte(SECTIONS[i]);
+            out.writeLong(0);
+            out.writeLong(0);
+            out.writeInt(0);
+        }
+        return out.position();
+    }
+
+    private static void finishSection(SnapshotEncoder out, int index, int offset) {
+        int entry = HEADER_SIZE + index * sectionEntrySize(VERSION);
+        out.putLong(entry + 1, offset);
+        out.putLong(entry + 9, out.position() - offset);
+        out.putInt(entry + 17, out.checksum(offset, out.position()));
+    }
+
+    private static ByteBuffer finish(SnapshotEncoder out, int tableEnd) {
+        out.writeInt(out.checksum(0, tableEnd));
+        out.writeLong(out.position() + 8L + 4L);
+        out.writeInt(FOOTER_MAGIC);
+        return out.toByteBuffer();
+    }
+
+    static void encodeRecord(int section, Faction faction, SnapshotEncoder out) {
+        switch (section) {
+            case SECTION_FACTIONS:
+                out.writeString(faction.getName());
+                out.writeSignedVarLong(faction.population);
+                out.writeSignedVarLong(faction.might);
+                out.writeSignedVarInt(faction.actionPoints);
+                out.writeSignedVarInt(faction.usedActionPoints);
+                out.writeSignedVarInt(faction.maxConcurrentBuildings);
+                out.writeSignedVarInt(faction.armyCounter);
+                out.writeDouble(faction.populationSurplusModifier);
+                out.writeVarInt(faction.getNextArmyId());
+                out.writeVarInt(faction.getNextBuildingId());
+                out.writeString(faction.getFeatures());
+                break;
+            case SECTION_RESOURCES:
+                Resources resources = faction.getResources();
+                out.writeVarInt(ResourceType.count());
+                for (int r = 0; r < ResourceType.count(); r++) {
+                    out.writeSignedVarLong(resources.get(r));
+                }
+                break;
+            case SECTION_TRAITS:
+                Traits traits = faction.getTraits();
+                out.writeVarInt(traits.getTraitsView().size());
+                for (Map.Entry<String, Integer> entry : traits.getTraitsView().entrySet()) {
+                    out.writeString(entry.getKey());
+                    out.writeSignedVarInt(entry.getValue());
+                }
+                out.writeVarInt(traits.getTraitDefinitionsView().size());
+                for (Map.Entry<String, Traits.TraitDefinition> entry : traits.getTraitDefinitionsView().entrySet()) {
+                    Traits.TraitDefinition definition = entry.getValue();
+                    out.writeString(entry.getKey());
+                    out.writeNullableString(definition.displayName);
+                    out.writeNullableString(definition.description);
+                    out.writeNullableString(definition.category);
+                }
+                break;
+            case SECTION_BUILDINGS:
+                List<BuildingStore.Entry> entries = faction.getBuildings().getEntries();
+                out.writeVarInt(entries.size());
+                for (BuildingStore.Entry entry : entries) {
+                    out.writeString(entry.getType());
+                    out.writeVarInt(entry.getCount());
+                }
+                break;
+            case SECTION_QUEUE:
+                List<Building> queue = faction.getBuildingQueueView();
+                out.writeVarInt(queue.size());
+                for (Building building : queue) {
+                    out.writeString(building.getType());
+                    out.writeString(building.getName());
+                    out.writeVarInt(building.getId());
+                    out.writeSignedVarInt(building.getConstructionWeeksRemaining());
+                }
+                break;
+            case SECTION_ARMIES:
+                out.writeVarInt(faction.getArmies().size());
+                for (Army army : faction.getArmies().values()) {
+                    out.writeString(army.getName());
+                    out.writeVarInt(army.getId());
+                    out.writeSignedVarLong(army.getPopulation());
+                    out.writeSignedVarInt(army.getMightModifier());
+                    out.writeVarInt(army.getState().ordinal());
+                    out.writeNullableString(army.getTargetFaction());
+                    out.writeSignedVarInt(army.getTravelWeeksRemaining());
+                }
+                break;
+            case SECTION_RESEARCH:
+                Research research = faction.getResearch();
+                out.writeVarInt(research.getProgressView().size());
+                for (Map.Entry<String, Integer> entry : new TreeMap<>(research.getProgressView()).entrySet()) {
+                    out.writeString(entry.getKey());
+                    out.writeSignedVarInt(entry.getValue());
+                }
+                out.writeVarInt(research.getResultsView().size());
+                for (Map.Entry<String, ResearchResult> entry : new TreeMap<>(research.getResultsView()).entrySet()) {
+                    out.writeString(entry.getKey());
+                    out.writeVarInt(entry.getValue().ordinal());
+                }
+                Map<String, Integer> modifiers = research.getModifiersView();
+                out.writeVarInt(modifiers.size());
+                for (Map.Entry<String, Integer> entry : new TreeMap<>(modifiers).entrySet()) {
+                    out.writeString(entry.getKey());
+                    out.writeSignedVarInt(entry.getValue());
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown snapshot section: " + section);
+        }
+    }
+
+    static Layout readLayout(ByteBuffer data) throws IOException {
+        SnapshotDecoder in = new SnapshotDecoder(data.duplicate());
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a world snapshot");
+        }
+        Layout layout = new Layout();
+        layout.version = in.readShort();
+        if (layout.version > VERSION) {
+            throw new IOException("Unsupported snapshot version: " + layout.version);
+        }
+        int sectionCount = in.readShort();
+        layout.week = in.readInt();
+        layout.factionCount = in.readInt();
+
+        int dataEnd = data.limit();
+        if (layout.version >= 2) {
+            dataEnd = data.limit() - FOOTER_SIZE;
+            if (dataEnd < HEADER_SIZE || data.getInt(data.limit() - 4) != FOOTER_MAGIC
+                    || data.getLong(data.limit() - 12) != data.limit()) {
+                throw new IOException("Snapshot footer is missing or truncated");
+            }
+            int tableEnd = HEADER_SIZE + sectionCount * sectionEntrySize(layout.version);
+            if (tableEnd > dataEnd || checksum(data, 0, tableEnd) != data.getInt(dataEnd)) {
+                throw new IOException("Snapshot header failed checksum");
+            }
+        }
+
+        for (int i = 0; i < sectionCount; i++) {
+            int section = in.readByte();
+            long offset = in.readLong();
+            long length = in.readLong();
+            if (offset < 0 || length < 0 || offset + length > dataEnd) {
+                throw new IOException("Snapshot section " + section + " is out of bounds");
+            }
+            if (layout.version >= 2 && checksum(data, (int) offset, (int) (offset + length)) != in.readInt()) {
+                throw new IOException("Snapshot section " + section + " failed checksum");
+            }
+            ByteBuffer slice = data.duplicate();
+            slice.position((int) offset);
+            slice.limit((int) (offset + length));
+            layout.sections.put(section, slice.slice());
+        }
+        return layout;
+    }
+
+    private static int checksum(ByteBuffer data, int from, int to) {
+        CRC32 crc = new CRC32();
+        ByteBuffer range = data.duplicate();
+        range.limit(to);
+        range.position(from);
+        crc.update(range);
+        return (int) crc.getValue();
+    }
+
+    static int decode(ByteBuffer data, FactionRegistry registry) throws IOException {
+        Layout layout = readLayout(data);
+        Map<Integer, ByteBuffer> sections = layout.sections;
+        int week = layout.week;
+        int factionCount = layout.factionCount;
+
+        if (!sections.containsKey(SECTION_FACTIONS)) {
+            throw new IOException("Snapshot has no faction section");
+        }
+
+        int[] resourceIndex = new int[0];
+        ByteBuffer resourceTypes = sections.get(SECTION_RESOURCE_TYPES);
+        if (resourceTypes != null) {
+            SnapshotDecoder types = new SnapshotDecoder(resourceTypes);
+            resourceIndex = new int[types.readVarInt()];
+            for (int r = 0; r < resourceIndex.length; r++) {
+                resourceIndex[r] = ResourceType.register(types.readString());
+            }
+        }
+
+        Map<String, Faction> byName = new LinkedHashMap<>();
+        for (Faction faction : registry.getFactionsInOrder()) {
+            byName.put(faction.getName(), faction);
+        }
+
+        Faction[] targets = new Faction[factionCount];
+        SnapshotDecoder factionSection = new SnapshotDecoder(sections.get(SECTION_FACTIONS).duplicate());
+        for (int i = 0; i < factionCount; i++) {
+            SnapshotDecoder record = factionSection.readRecord();
+            targets[i] = byName.remove(record.readString());
+        }
+        if (!byName.isEmpty()) {
+            throw new FileNotFoundException("Snapshot has no state for: " + byName.keySet().iterator().next());
+        }
+
+        SnapshotDecoder[][] records = new SnapshotDecoder[SECTIONS.length][];
+        for (int i = 0; i < SECTIONS.length; i++) {
+            ByteBuffer body = sections.get(SECTIONS[i]);
+            if (body == null || SECTIONS[i] == SECTION_RESOURCE_TYPES) {
+                continue;
+            }
+            SnapshotDecoder sectionIn = new SnapshotDecoder(body.duplicate());
+            records[i] = new SnapshotDecoder[factionCount];
+            for (int f = 0; f < factionCount; f++) {
+                records[i][f] = sectionIn.readRecord();
+            }
+        }
+
+        for (Faction faction : targets) {
+            if (faction != null) {
+                faction.clearLoadedState();
+            }
+        }
+
+        int[] resources = resourceIndex;
+        FactionIO.forEachIndex(factionCount, f -> {
+            Faction faction = targets[f];
+            if (faction == null) {
+                return;
+            }
+            for (int i = 0; i < SECTIONS.length; i++) {
+                if (records[i] != null) {
+                    decodeRecord(SECTIONS[i], faction, records[i][f], resources);
+                }
+            }
+        });
+
+        return week;
+    }
+
+    static void decodeRecord(int section, Faction faction, SnapshotDecoder in, int[] resourceIndex) throws IOException {
+        switch (section) {
+            case SECTION_FACTIONS:
+                in.readString();
+                faction.population = in.readSignedVarLong();
+                faction.might = in.readSignedVarLong();
+                faction.actionPoints = in.readSignedVarInt();
+                faction.usedActionPoints = in.readSignedVarInt();
+                faction.maxConcurrentBuildings = in.readSignedVarInt();
+                faction.armyCounter = in.readSignedVarInt();
+                faction.populationSurplusModifier = in.readDouble();
+                int nextArmyId = in.readVarInt();
+                int nextBuildingId = in.readVarInt();
+                faction.restoreNextIds(nextArmyId, nextBuildingId);
+                faction.setFeatures(in.readString());
+                break;
+            case SECTION_RESOURCES:
+                Resources resources = faction.getResources();
+                for (int r = 0; r < ResourceType.count(); r++) {
+                    resources.set(r, 0);
+                }
+                int resourceCount = in.readVarInt();
+                for (int r = 0; r < resourceCount; r++) {
+                    long amount = in.readSignedVarLong();
+                    if (r < resourceIndex.length) {
+                        resources.set(resourceIndex[r], amount);
+                    }
+                }
+                break;
+            case SECTION_TRAITS:
+                Map<String, Integer> traitValues = new HashMap<>();
+                int traitCount = in.readVarInt();
+                for (int t = 0; t < traitCount; t++) {
+                    traitValues.put(in.readString(), in.readSignedVarInt());
+                }
+                Map<String, Traits.TraitDefinition> definitions = new HashMap<>();
+                int definitionCount = in.readVarInt();
+                for (int t = 0; t < definitionCount; t++) {
+                    String traitName = in.readString();
+                    definitions.put(traitName, new Traits.TraitDefinition(
+                            in.readNullableString(), in.readNullableString(), in.readNullableString()));
+                }
+                faction.getTraits().restore(traitValues, definitions);
+                break;
+            case SECTION_BUILDINGS:
+                int typeCount = in.readVarInt();
+                for (int b = 0; b < typeCount; b++) {
+                    String type = in.readString();
+                    int count = in.readVarInt();
+                    BuildingDefinition def = BuildingDefinition.get(type);
+                    if (def != null) {
+                        faction.getBuildings().add(def, count);
+                    }
+                }
+                break;
+            case SECTION_QUEUE:
+                int queued = in.readVarInt();
+                for (int b = 0; b < queued; b++) {
+                    String type = in.readString();
+                    String name = in.readString();
+                    int id = in.readVarInt();
+                    int weeksRemaining = in.readSignedVarInt();
+                    BuildingDefinition def = BuildingDefinition.get(type);
+                    if (def != null) {
+                        faction.restoreQueuedBuilding(def.createConstructing(name, weeksRemaining), id);
+                    }
+                }
+                break;
+            case SECTION_ARMIES:
+                int armyCount = in.readVarInt();
+                Army.ArmyState[] states = Army.ArmyState.values();
+                for (int a = 0; a < armyCount; a++) {
+                    String name = in.readString();
+                    int id = in.readVarInt();
+                    long population = in.readSignedVarLong();
+                    int mightModifier = in.readSignedVarInt();
+                    int state = in.readVarInt();
+                    String target = in.readNullableString();
+                    int weeks = in.readSignedVarInt();
+                    if (state >= states.length) {
+                        throw new IOException("Unknown army state in snapshot: " + state);
+                    }
+                    Army army = new Army(name, population);
+                    army.restoreState(mightModifier, states[state], target, weeks);
+                    faction.restoreArmy(army, id);
+                }
+                break;
+            case SECTION_RESEARCH:
+                Map<String, Integer> progress = new HashMap<>();
+                int progressCount = in.readVarInt();
+                for (int p = 0; p < progressCount; p++) {
+                    progress.put(in.readString(), in.readSignedVarInt());
+                }
+                Map<String, ResearchResult> results = new HashMap<>();
+                ResearchResult[] outcomes = ResearchResult.values();
+                int resultCount = in.readVarInt();
+                for (int p = 0; p < resultCount; p++) {
+                    String field = in.readString();
+                    int outcome = in.readVarInt();
+                    if (outcome >= outcomes.length) {
+                        throw new IOException("Unknown research result in snapshot: " + outcome);
+                    }
+                    results.put(field, outcomes[outcome]);
+                }
+                Map<String, Integer> modifiers = new HashMap<>();
+                int modifierCount = in.readVarInt();
+                for (int p = 0; p < modifierCount; p++) {
+                    modifiers.put(in.readString(), in.readSignedVarInt());
+                }
+                faction.getResearch().restore(progress, results, modifiers);
+                break;
+            default:
+                break;
+        }
+    }
+
+}
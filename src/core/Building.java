@@ -10,70 +10,99 @@ public class Building {
         COMPLETED
     }
 
-    protected String id;
+    protected int id;
     protected String name;
     protected String type;
-    protected Map<String, Integer> constructionCost;
+    protected ResourceVector constructionCost;
     protected BuildingStatus status;
 
-    private Map<String, Integer> upkeep;
-    private Map<String, Integer> production;
+    private ResourceVector upkeep;
+    private ResourceVector production;
     private int constructionWeeksRemaining;
     private int weeksSinceLastProgress;
+    private long version;
     private static final int MAX_DORMANT_WEEKS = 3;
 
     public Building(String name, String type) {
         this.name = name;
         this.type = type;
-        this.id = type.toLowerCase() + "_" + System.nanoTime();
-        this.constructionCost = new HashMap<>();
-        this.upkeep = new HashMap<>();
-        this.production = new HashMap<>();
+        this.id = 0;
+        this.constructionCost = new ResourceVector();
+        this.upkeep = new ResourceVector();
+        this.production = new ResourceVector();
         this.status = BuildingStatus.COMPLETED;
         this.constructionWeeksRemaining = 0;
         this.weeksSinceLastProgress = 0;
+        this.version = StateVersion.next();
     }
 
     public Building(String name, String type, int constructionWeeks) {
         this.name = name;
         this.type = type;
-        this.id = type.toLowerCase() + "_" + System.nanoTime();
-        this.constructionCost = new HashMap<>();
-        this.upkeep = new HashMap<>();
-        this.production = new HashMap<>();
+        this.id = 0;
+        this.constructionCost = new ResourceVector();
+        this.upkeep = new ResourceVector();
+        this.production = new ResourceVector();
         this.status = BuildingStatus.UNDER_CONSTRUCTION;
         this.constructionWeeksRemaining = constructionWeeks;
         this.weeksSinceLastProgress = 0;
     }
 
-    public void setConstructionCost(String resource, int amount) {
-        constructionCost.put(resource, amount);
+    public void setConstructionCost(String resource, long amount) {
+        constructionCost.set(resource, amount);
     }
 
-    public Map<String, Integer> getConstructionCost() {
-        return new HashMap<>(constructionCost);
+    public Map<String, Long> getConstructionCost() {
+        return new HashMap<>(constructionCost.toMap());
     }
 
-    public void setUpkeep(String resource, int amount) {
-        upkeep.put(resource, amount);
+    public void setUpkeep(String resource, long amount) {
+        upkeep.set(resource, amount);
     }
 
-    public Map<String, Integer> getUpkeep() {
-        return new HashMap<>(upkeep);
+    public Map<String, Long> getUpkeep() {
+        return new HashMap<>(upkeep.toMap());
     }
 
-    public void setProduction(String resource, int amount) {
-        production.put(resource, amount);
+    public void setProduction(String resource, long amount) {
+        production.set(resource, amount);
     }
 
-    public Map<String, Integer> getProduction() {
-        return new HashMap<>(production);
+    public Map<String, Long> getProduction() {
+        return new HashMap<>(production.toMap());
     }
 
-    public String getId() {
+    void setVectors(ResourceVector constructionCost, ResourceVector upkeep, ResourceVector production) {
+        this.constructionCost = new ResourceVector(constructionCost);
+        this.upkeep = new ResourceVector(upkeep);
+        this.production = new ResourceVector(production);
+    }
+
+    ResourceVector getConstructionCostVector() {
+        return constructionCost;
+    }
+
+    ResourceVector getUpkeepVector() {
+        return upkeep;
+    }
+
+    ResourceVector getProductionVector() {
+        return production;
+    }
+
+    public int getId() {
         return id;
     }
 
+    void setId(int id) {
+        this.id = id;
+        this.version = StateVersion.next();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
     public String getName() {
         return name;
     }
@@ -90,11 +119,13 @@ public class Building {
         if (constructionWeeksRemaining > 0) {
             constructionWeeksRemaining -= weeksCompleted;
             weeksSinceLastProgress = 0;
+            version = StateVersion.next();
         }
     }
 
     public void addDormantWeek() {
         weeksSinceLastProgress++;
+        version = StateVersion.next();
     }
 
     public boolean isConstructionFailed() {
@@ -123,7 +154,8 @@ public class Building {
     public String toString() {
         if (status == BuildingStatus.UNDER_CONSTRUCTION) {
             return "Building{" +
-                    "name='" + name + '\'' +
+                    "id=" + id +
+                    ", name='" + name + '\'' +
                     ", type='" + type + '\'' +
                     ", status=" + status +
                     ", weeksRemaining=" + constructionWeeksRemaining +
@@ -1,5 +1,6 @@
 package core;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -7,9 +8,10 @@ public class BuildingDefinition {
 
     private String type;
     private int constructionWeeks;
-    private Map<String, Integer> constructionCost;
-    private Map<String, Integer> upkeep;
-    private Map<String, Integer> production;
+    private ResourceVector constructionCost;
+    private ResourceVector upkeep;
+    private ResourceVector production;
+    private Map<String, Integer> statModifiers;
     private int maxConcurrentOfType;
 
     public static final Map<String, BuildingDefinition> BUILDINGS = new HashMap<>();
@@ -43,59 +45,54 @@ public class BuildingDefinition {
     public BuildingDefinition(String type, int constructionWeeks) {
         this.type = type;
         this.constructionWeeks = constructionWeeks;
-        this.constructionCost = new HashMap<>();
-        this.upkeep = new HashMap<>();
-        this.production = new HashMap<>();
+        this.constructionCost = new ResourceVector();
+        this.upkeep = new ResourceVector();
+        this.production = new ResourceVector();
+        this.statModifiers = new HashMap<>();
         this.maxConcurrentOfType = 3;
     }
 
-    public void setConstructionCost(String resource, int amount) {
-        constructionCost.put(resource, amount);
+    public void setConstructionCost(String resource, long amount) {
+        constructionCost.set(resource, amount);
     }
 
-    public void setUpkeep(String resource, int amount) {
-        upkeep.put(resource, amount);
+    public void setUpkeep(String resource, long amount) {
+        upkeep.set(resource, amount);
     }
 
-    public void setProduction(String resource, int amount) {
-        production.put(resource, amount);
+    public void setProduction(String resource, long amount) {
+        production.set(resource, amount);
     }
 
-    public Building createConstructing(String name) {
-        Building building = new Building(name, type, constructionWeeks);
+    public void setStatModifier(String statName, int value) {
+        statModifiers.put(statName, value);
+    }
 
-        for (Map.Entry<String, Integer> entry : constructionCost.entrySet()) {
-            building.setConstructionCost(entry.getKey(), entry.getValue());
-        }
+    public Map<String, Integer> getStatModifiers() {
+        return Collections.unmodifiableMap(statModifiers);
+    }
 
+    public Building createConstructing(String name) {
+        Building building = new Building(name, type, constructionWeeks);
+        building.setVectors(constructionCost, new ResourceVector(), new ResourceVector());
         return building;
     }
 
     public Building createConstructing(int weeksRemaining) {
         Building building = new Building(type, type, weeksRemaining);
+        building.setVectors(constructionCost, new ResourceVector(), new ResourceVector());
+        return building;
+    }
 
-        for (Map.Entry<String, Integer> entry : constructionCost.entrySet()) {
-            building.setConstructionCost(entry.getKey(), entry.getValue());
-        }
-
+    Building createConstructing(String name, int weeksRemaining) {
+        Building building = new Building(name, type, weeksRemaining);
+        building.setVectors(constructionCost, new ResourceVector(), new ResourceVector());
         return building;
     }
 
     public Building createCompleted(String name) {
         Building building = new Building(name, type);
-
-        for (Map.Entry<String, Integer> entry : constructionCost.entrySet()) {
-            building.setConstructionCost(entry.getKey(), entry.getValue());
-        }
-
-        for (Map.Entry<String, Integer> entry : upkeep.entrySet()) {
-            building.setUpkeep(entry.getKey(), entry.getValue());
-        }
-
-        for (Map.Entry<String, Integer> entry : production.entrySet()) {
-            building.setProduction(entry.getKey(), entry.getValue());
-        }
-
+        building.setVectors(constructionCost, upkeep, production);
         return building;
     }
 
@@ -107,16 +104,40 @@ public class BuildingDefinition {
         return constructionWeeks;
     }
 
-    public Map<String, Integer> getConstructionCost() {
-        return new HashMap<>(constructionCost);
+    public Map<String, Long> getConstructionCost() {
+        return new HashMap<>(constructionCost.toMap());
+    }
+
+    public Map<String, Long> getUpkeep() {
+        return new HashMap<>(upkeep.toMap());
+    }
+
+    public Map<String, Long> getProduction() {
+        return new HashMap<>(production.toMap());
+    }
+
+    ResourceVector getConstructionCostVector() {
+        return constructionCost;
+    }
+
+    String nameFor(int position) {
+        return type + "_" + position;
+    }
+
+    void refundDemolition(Resources resources) {
+        for (int i = 0; i < constructionCost.size(); i++) {
+            if (constructionCost.isDefined(i)) {
+                resources.add(i, (long) (constructionCost.get(i) * 0.15));
+            }
+        }
     }
 
-    public Map<String, Integer> getUpkeep() {
-        return new HashMap<>(upkeep);
+    ResourceVector getUpkeepVector() {
+        return upkeep;
     }
 
-    public Map<String, Integer> getProduction() {
-        return new HashMap<>(production);
+    ResourceVector getProductionVector() {
+        return production;
     }
 
     public void setMaxConcurrentOfType(int max) {
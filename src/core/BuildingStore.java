@@ -0,0 +1,224 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BuildingStore {
+
+    public static class Entry {
+        private final BuildingDefinition definition;
+        private final ResourceVector production;
+        private final ResourceVector upkeep;
+        private int count;
+
+        Entry(BuildingDefinition definition) {
+            this.definition = definition;
+            this.production = new ResourceVector();
+            this.upkeep = new ResourceVector();
+            this.count = 0;
+        }
+
+        private void setCount(int count) {
+            this.count = count;
+            scale(definition.getProductionVector(), production, count);
+            scale(definition.getUpkeepVector(), upkeep, count);
+        }
+
+        private static void scale(ResourceVector base, ResourceVector target, int count) {
+            for (int i = 0; i < base.size(); i++) {
+                if (base.isDefined(i)) {
+                    target.set(i, Saturating.multiply(base.get(i), count));
+                }
+            }
+        }
+
+        public BuildingDefinition getDefinition() {
+            return definition;
+        }
+
+        public String getType() {
+            return definition.getType();
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public ResourceVector getProduction() {
+            return production;
+        }
+
+        public ResourceVector getUpkeep() {
+            return upkeep;
+        }
+    }
+
+    private final Map<String, Entry> byType;
+    private final List<Entry> entries;
+    private final List<Entry> entriesView;
+    private final ResourceVector totalProduction;
+    private final ResourceVector totalUpkeep;
+    private final Map<String, Integer> statModifiers;
+    private DerivedStats stats;
+    private int size;
+    private long version;
+
+    public BuildingStore() {
+        this.byType = new HashMap<>();
+        this.entries = new ArrayList<>();
+        this.entriesView = Collections.unmodifiableList(entries);
+        this.totalProduction = new ResourceVector();
+        this.totalUpkeep = new ResourceVector();
+        this.statModifiers = new HashMap<>();
+        this.size = 0;
+    }
+
+    public void attachStats(DerivedStats stats) {
+        this.stats = stats;
+        stats.putSource("buildings", statModifiers);
+    }
+
+    public void add(BuildingDefinition definition) {
+        add(definition, 1);
+    }
+
+    public void add(BuildingDefinition definition, int count) {
+        if (count <= 0) {
+            return;
+        }
+
+        Entry entry = byType.get(definition.getType());
+        if (entry == null) {
+            entry = new Entry(definition);
+            byType.put(definition.getType(), entry);
+            int position = 0;
+            while (position < entries.size() && entries.get(position).getType().compareTo(entry.getType()) < 0) {
+                position++;
+            }
+            entries.add(position, entry);
+        }
+
+        entry.setCount(entry.getCount() + count);
+        adjustTotals(definition, count);
+        size += count;
+        version = StateVersion.next();
+    }
+
+    public boolean remove(String type) {
+        Entry entry = byType.get(type);
+        if (entry == null || entry.getCount() == 0) {
+            return false;
+        }
+
+        entry.setCount(entry.getCount() - 1);
+        adjustTotals(entry.getDefinition(), -1);
+        size--;
+        version = StateVersion.next();
+        return true;
+    }
+
+    private void adjustTotals(BuildingDefinition definition, int delta) {
+        Map<String, Integer> modifiers = definition.getStatModifiers();
+        if (!modifiers.isEmpty()) {
+            for (Map.Entry<String, Integer> modifier : modifiers.entrySet()) {
+                int value = statModifiers.getOrDefault(modifier.getKey(), 0) + modifier.getValue() * delta;
+                if (value == 0) {
+                    statModifiers.remove(modifier.getKey());
+                } else {
+                    statModifiers.put(modifier.getKey(), value);
+                }
+            }
+            if (stats != null) {
+                stats.invalidate();
+            }
+        }
+
+        ResourceVector production = definition.getProductionVector();
+        for (int i = 0; i < production.size(); i++) {
+            if (production.isDefined(i)) {
+                totalProduction.set(i, Saturating.add(totalProduction.get(i), Saturating.multiply(production.get(i), delta)));
+            }
+        }
+
+        ResourceVector upkeep = definition.getUpkeepVector();
+        for (int i = 0; i < upkeep.size(); i++) {
+            if (upkeep.isDefined(i)) {
+                totalUpkeep.set(i, Saturating.add(totalUpkeep.get(i), Saturating.multiply(upkeep.get(i), delta)));
+            }
+        }
+    }
+
+    public String findType(String typeOrId) {
+        if (typeOrId == null) {
+            return null;
+        }
+        if (byType.containsKey(typeOrId)) {
+            return typeOrId;
+        }
+
+        int separator = typeOrId.lastIndexOf('_');
+        String prefix = separator > 0 ? typeOrId.substring(0, separator) : typeOrId;
+        for (Entry entry : entries) {
+            if (entry.getType().equalsIgnoreCase(prefix) || entry.getType().equalsIgnoreCase(typeOrId)) {
+                return entry.getType();
+            }
+        }
+        return null;
+    }
+
+    public int count(String type) {
+        Entry entry = byType.get(type);
+        return entry != null ? entry.getCount() : 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Entry> getEntries() {
+        return entriesView;
+    }
+
+    public ResourceVector getTotalProduction() {
+        return totalProduction;
+    }
+
+    public ResourceVector getTotalUpkeep() {
+        return totalUpkeep;
+    }
+
+    public void clear() {
+        version = StateVersion.next();
+        byType.clear();
+        entries.clear();
+        size = 0;
+        if (!statModifiers.isEmpty()) {
+            statModifiers.clear();
+            if (stats != null) {
+                stats.invalidate();
+            }
+        }
+        for (int i = 0; i < totalProduction.size(); i++) {
+            if (totalProduction.isDefined(i)) {
+                totalProduction.set(i, 0);
+            }
+        }
+        for (int i = 0; i < totalUpkeep.size(); i++) {
+            if (totalUpkeep.isDefined(i)) {
+                totalUpkeep.set(i, 0);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,328 @@
+package core;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+public class BulkEconomy {
+
+    private static final String[] KERNEL_PHASES = {
+            "calculateActionPoints", "consumeFood", "applyFoodPopulationPenalty",
+            "applyBuildingProduction", "applyBuildingUpkeep", "applyPopulationGrowth"
+    };
+    private static final int CHUNK_SIZE = 4096;
+
+    private final Faction[] factions;
+    private final int size;
+    private final int resourceCount;
+    private final int parallelism;
+    private ForkJoinPool pool;
+
+    private final long[] population;
+    private final long[] armyPopulation;
+    private final int[] actionPoints;
+    private final long[][] stock;
+    private final long[][] production;
+    private final long[][] upkeep;
+    private final int[] consumptionDivisor;
+    private final int[] consumptionModifier;
+    private final boolean[] capToFood;
+    private final int[] growthModifier;
+    private final double[] surplusModifier;
+
+    public BulkEconomy(List<Faction> factions, int parallelism) {
+        for (Faction faction : factions) {
+            if (!supports(faction)) {
+                throw new IllegalArgumentException("Faction overrides economy phases: " + faction.getName());
+            }
+        }
+
+        this.factions = factions.toArray(new Faction[0]);
+        this.size = this.factions.length;
+        this.resourceCount = ResourceType.count();
+        this.parallelism = Math.max(1, parallelism);
+
+        this.population = new long[size];
+        this.armyPopulation = new long[size];
+        this.actionPoints = new int[size];
+        this.stock = new long[resourceCount][size];
+        this.production = new long[resourceCount][size];
+        this.upkeep = new long[resourceCount][size];
+        this.consumptionDivisor = new int[size];
+        this.consumptionModifier = new int[size];
+        this.capToFood = new boolean[size];
+        this.growthModifier = new int[size];
+        this.surplusModifier = new double[size];
+
+        load();
+    }
+
+    public static boolean supports(Faction faction) {
+        for (Class<?> type = faction.getClass(); type != Faction.class; type = type.getSuperclass()) {
+            for (String phase : KERNEL_PHASES) {
+                try {
+                    type.getDeclaredMethod(phase);
+                    return false;
+                } catch (NoSuchMethodException e) {
+                    // not overridden at this level
+                }
+            }
+        }
+        return true;
+    }
+
+    public void load() {
+        for (int i = 0; i < size; i++) {
+            Faction faction = factions[i];
+            population[i] = faction.population;
+            actionPoints[i] = faction.actionPoints;
+            for (int r = 0; r < resourceCount; r++) {
+                stock[r][i] = faction.resources.get(r);
+            }
+            refreshArmies(i);
+            refreshModifiers(i);
+            refreshBuildings(i);
+        }
+    }
+
+    public void store() {
+        for (int i = 0; i < size; i++) {
+            Faction faction = factions[i];
+            faction.population = population[i];
+            faction.actionPoints = actionPoints[i];
+            faction.usedActionPoints = 0;
+            for (int r = 0; r < resourceCount; r++) {
+                if (faction.resources.get(r) != stock[r][i]) {
+                    faction.resources.set(r, stock[r][i]);
+                }
+            }
+        }
+    }
+
+    private void refreshArmies(int i) {
+        armyPopulation[i] = factions[i].getTotalArmiesPopulation();
+    }
+
+    private void refreshModifiers(int i) {
+        Faction faction = factions[i];
+        Traits traits = faction.getTraits();
+        consumptionDivisor[i] = faction.getFoodConsumptionDivisor();
+        consumptionModifier[i] = faction.appliesConsumptionModifier() ? traits.getPopulationConsumptionModifier() : 0;
+        capToFood[i] = faction.capsPopulationToFood();
+        growthModifier[i] = traits.getPopulationGrowthModifier();
+        surplusModifier[i] = faction.getPopulationSurplusModifier();
+    }
+
+    private void refreshBuildings(int i) {
+        Traits traits = factions[i].getTraits();
+        for (int r = 0; r < resourceCount; r++) {
+            production[r][i] = 0;
+            upkeep[r][i] = 0;
+        }
+
+        for (BuildingStore.Entry entry : factions[i].getBuildings().getEntries()) {
+            int count = entry.getCount();
+            if (count == 0) continue;
+
+            ResourceVector entryProduction = entry.getProduction();
+            ResourceVector entryUpkeep = entry.getUpkeep();
+            for (int r = 0; r < resourceCount; r++) {
+                if (entryProduction.isDefined(r)) {
+                    long effective = Saturating.add(entryProduction.get(r), (long) traits.getResourceProductionModifier(r) * count);
+                    production[r][i] = Saturating.add(production[r][i], Math.max(0, effective));
+                }
+                if (entryUpkeep.isDefined(r)) {
+                    long effective = Saturating.add(entryUpkeep.get(r), (long) traits.getResourceConsumptionModifier(r) * count);
+                    upkeep[r][i] = Saturating.add(upkeep[r][i], Math.max(0, effective));
+                }
+            }
+        }
+    }
+
+    public void runWeeks(int weeks) {
+        for (int week = 0; week < weeks; week++) {
+            runWeek();
+        }
+    }
+
+    public void runWeek() {
+        forEachChunk(this::consumeChunk);
+
+        for (int i = 0; i < size; i++) {
+            Faction faction = factions[i];
+            if (!faction.buildingQueue.isEmpty()) {
+                int builtBefore = faction.buildings.size();
+                faction.processBuildings();
+                if (faction.buildings.size() != builtBefore) {
+                    refreshBuildings(i);
+                }
+            }
+        }
+
+        forEachChunk(this::produceChunk);
+
+        for (int i = 0; i < size; i++) {
+            Faction faction = factions[i];
+            if (!faction.armies.isEmpty()) {
+                faction.processMilitary();
+                refreshArmies(i);
+            }
+        }
+
+        forEachChunk(this::growChunk);
+    }
+
+    private void consumeChunk(int from, int to) {
+        long[] food = stock[ResourceType.FOOD];
+        for (int i = from; i < to; i++) {
+            actionPoints[i] = factions[i].getTraits().calculateTotalActionPoints();
+
+            long pop = population[i];
+            long weeklyConsumption = Math.max(0, Saturating.add(Saturating.add(pop, armyPopulation[i]) / consumptionDivisor[i], consumptionModifier[i]));
+            long currentFood = food[i];
+            if (currentFood < weeklyConsumption) {
+                food[i] = 0;
+                pop = Math.max(0, pop - (weeklyConsumption - currentFood));
+            } else {
+                food[i] = Math.max(0, currentFood - weeklyConsumption);
+            }
+            if (capToFood[i] && food[i] < pop && food[i] > 0) {
+                pop = food[i];
+            }
+
+            if (food[i] < pop) {
+                long difference = pop - food[i];
+                double percentageReduction = (double) difference / pop;
+                pop = (long) (pop * (1 - percentageReduction));
+            }
+            population[i] = pop;
+        }
+    }
+
+    private void produceChunk(int from, int to) {
+        for (int r = 0; r < resourceCount; r++) {
+            long[] amounts = stock[r];
+            long[] produced = production[r];
+            long[] consumed = upkeep[r];
+            for (int i = from; i < to; i++) {
+                amounts[i] = Math.max(0, Saturating.add(amounts[i], produced[i]));
+            }
+            for (int i = from; i < to; i++) {
+                amounts[i] = Math.max(0, Saturating.subtract(amounts[i], consumed[i]));
+            }
+        }
+    }
+
+    private void growChunk(int from, int to) {
+        long[] food = stock[ResourceType.FOOD];
+        for (int i = from; i < to; i++) {
+            long pop = population[i];
+            long currentFood = food[i];
+            if (currentFood >= pop) {
+                long populationSurplus = currentFood - pop;
+                double baseGrowthMultiplier = 1.0 + (pop / 4.0 / pop);
+                double effectiveGrowthMultiplier = baseGrowthMultiplier + (growthModifier[i] * 0.01);
+                double surplusContribution = populationSurplus * surplusModifier[i];
+                population[i] = (long) ((pop + surplusContribution) * effectiveGrowthMultiplier);
+            }
+        }
+    }
+
+    void advanceLinearResources(long weeks) {
+        for (int i = 0; i < size; i++) {
+            for (int r = 0; r < resourceCount; r++) {
+                if (r != ResourceType.FOOD) {
+                    stock[r][i] = advanceLinear(stock[r][i], production[r][i], upkeep[r][i], weeks);
+                }
+            }
+        }
+    }
+
+    static long advanceLinear(long amount, long produced, long consumed, long weeks) {
+        long net = produced - consumed;
+        while (weeks > 0) {
+            long quiet = weeksBeforeEvent(amount, produced, net);
+            if (quiet >= weeks) {
+                return amount + net * weeks;
+            }
+            amount += net * quiet;
+            weeks -= quiet + 1;
+
+            long next = Math.max(0, Saturating.add(amount, produced));
+            next = Math.max(0, Saturating.subtract(next, consumed));
+            if (next == amount) {
+                return amount;
+            }
+            amount = next;
+        }
+        return amount;
+    }
+
+    private static long weeksBeforeEvent(long amount, long produced, long net) {
+        if (amount < 0) {
+            return 0;
+        }
+        long headroom = Long.MAX_VALUE - produced - amount;
+        if (headroom < 0) {
+            return 0;
+        }
+        if (net < 0) {
+            return amount / -net;
+        }
+        if (net == 0) {
+            return Long.MAX_VALUE;
+        }
+        long weeks = headroom / net;
+        return weeks == Long.MAX_VALUE ? weeks : weeks + 1;
+    }
+
+    private interface ChunkKernel {
+        void run(int from, int to);
+    }
+
+    private void forEachChunk(ChunkKernel kernel) {
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (parallelism == 1 || chunks < 2) {
+            kernel.run(0, size);
+            return;
+        }
+
+        try {
+            getPool().submit(() -> IntStream.range(0, chunks).parallel()
+                    .forEach(c -> kernel.run(c * CHUNK_SIZE, Math.min(size, (c + 1) * CHUNK_SIZE)))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bulk economy interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Bulk economy failed", e.getCause());
+        }
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getPopulation(int index) {
+        return population[index];
+    }
+
+    public long getStock(int resourceIndex, int index) {
+        return stock[resourceIndex][index];
+    }
+
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+}
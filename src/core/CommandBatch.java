@@ -0,0 +1,248 @@
+package core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CommandBatch {
+
+    public static class Problem {
+        private final int lineNumber;
+        private final String line;
+        private final String message;
+
+        private Problem(int lineNumber, String line, String message) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.message = message;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + line + " - " + message;
+        }
+    }
+
+    private final FactionRegistry registry;
+    private final List<WeeklyCommand> commands;
+    private final List<Problem> compileProblems;
+    private final List<Problem> problems;
+    private final Map<Faction, List<Integer>> localBlocks;
+    private final List<Integer> crossFaction;
+
+    private CommandBatch(FactionRegistry registry, List<WeeklyCommand> commands, List<Problem> problems) {
+        this.registry = registry;
+        this.commands = Collections.unmodifiableList(commands);
+        this.compileProblems = new ArrayList<>(problems);
+        this.localBlocks = new LinkedHashMap<>();
+        this.crossFaction = new ArrayList<>();
+        List<Integer> local = new ArrayList<>();
+        for (int i = 0; i < commands.size(); i++) {
+            WeeklyCommand command = commands.get(i);
+            if (command.isFactionLocal()) {
+                localBlocks.computeIfAbsent(command.getFaction(), f -> new ArrayList<>()).add(i);
+                local.add(i);
+            } else {
+                crossFaction.add(i);
+            }
+        }
+
+        CommandBudget budget = new CommandBudget(registry);
+        check(local, budget, problems);
+        check(crossFaction, budget, problems);
+        problems.sort(Comparator.comparingInt(Problem::getLineNumber));
+        this.problems = Collections.unmodifiableList(problems);
+    }
+
+    private void check(List<Integer> indexes, CommandBudget budget, List<Problem> problems) {
+        for (int index : indexes) {
+            WeeklyCommand command = commands.get(index);
+            try {
+                command.check(budget);
+            } catch (Exception e) {
+                problems.add(new Problem(command.getLineNumber(), command.getLine(), e.getMessage()));
+            }
+        }
+    }
+
+    public static CommandBatch compile(File weeklyFile, FactionRegistry registry) throws IOException {
+        try (CommandTokenizer tokens = CommandTokenizer.open(weeklyFile)) {
+            return compile(tokens, registry);
+        }
+    }
+
+    public static CommandBatch compile(List<String> lines, FactionRegistry registry) {
+        try {
+            return compile(new CommandTokenizer(lines), registry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static CommandBatch compile(CommandTokenizer tokens, FactionRegistry registry) throws IOException {
+        List<WeeklyCommand> commands = new ArrayList<>();
+        List<Problem> problems = new ArrayList<>();
+        Faction currentFaction = null;
+
+        while (tokens.next()) {
+            if (tokens.get(0).equals("FACTION")) {
+                currentFaction = tokens.size() > 1 ? registry.getFaction(tokens.get(1)) : null;
+                if (currentFaction == null) {
+                    problems.add(new Problem(tokens.getLineNumber(), tokens.getLine(), tokens.size() > 1
+                            ? "Faction not found: " + tokens.get(1)
+                            : "FACTION requires faction name"));
+                }
+                continue;
+            }
+
+            if (currentFaction == null) continue;
+
+            try {
+                commands.add(WeeklyCommand.compile(currentFaction, tokens.tokens(), tokens.size(),
+                        tokens.getLineNumber(), tokens.getLine(), registry));
+            } catch (IllegalArgumentException e) {
+                problems.add(new Problem(tokens.getLineNumber(), tokens.getLine(), e.getMessage()));
+            }
+        }
+        return new CommandBatch(registry, commands, problems);
+    }
+
+    public FactionRegistry getRegistry() {
+        return registry;
+    }
+
+    public List<WeeklyCommand> getCommands() {
+        return commands;
+    }
+
+    public List<Problem> validate() {
+        return problems;
+    }
+
+    public boolean isValid() {
+        return problems.isEmpty();
+    }
+
+    public void apply(ActorRuntime runtime) {
+        Object[] created = new Object[commands.size()];
+        String[] errors = new String[commands.size()];
+        int firstArmyId = registry.getArmyIds().getNextId();
+        int firstBuildingId = registry.getBuildingIds().getNextId();
+
+        if (runtime != null && localBlocks.size() > 1) {
+            try {
+                for (Map.Entry<Faction, List<Integer>> block : localBlocks.entrySet()) {
+                    runtime.send(block.getKey(), faction -> applyAll(block.getValue(), faction, created, errors));
+                }
+            } finally {
+                runtime.awaitBarrier();
+            }
+        } else {
+            for (Map.Entry<Faction, List<Integer>> block : localBlocks.entrySet()) {
+                applyAll(block.getValue(), block.getKey(), created, errors);
+            }
+        }
+
+        renumber(created, firstArmyId, firstBuildingId);
+        for (int index : crossFaction) {
+            WeeklyCommand command = commands.get(index);
+            apply(index, command.getFaction(), created, errors);
+        }
+
+        report(errors);
+    }
+
+    private void applyAll(List<Integer> block, Faction faction, Object[] created, String[] errors) {
+        for (int index : block) {
+            apply(index, faction, created, errors);
+        }
+    }
+
+    private void apply(int index, Faction faction, Object[] created, String[] errors) {
+        try {
+            created[index] = commands.get(index).apply(faction);
+        } catch (Exception e) {
+            errors[index] = e.getMessage();
+        }
+    }
+
+    private void renumber(Object[] created, int firstArmyId, int firstBuildingId) {
+        IdTable<Army> armyIds = registry.getArmyIds();
+        IdTable<Building> buildingIds = registry.getBuildingIds();
+        int[] ids = new int[created.length];
+        int nextArmyId = firstArmyId;
+        int nextBuildingId = firstBuildingId;
+
+        for (int i = 0; i < created.length; i++) {
+            if (created[i] instanceof Army) {
+                Army army = (Army) created[i];
+                ids[i] = nextArmyId++;
+                if (army.getId() != ids[i] && armyIds.get(army.getId()) == army) {
+                    armyIds.remove(army.getId());
+                } else {
+                    created[i] = null;
+                }
+            } else if (created[i] instanceof Building) {
+                Building building = (Building) created[i];
+                ids[i] = nextBuildingId++;
+                if (building.getId() != ids[i] && buildingIds.get(building.getId()) == building) {
+                    buildingIds.remove(building.getId());
+                } else {
+                    created[i] = null;
+                }
+            }
+        }
+
+        for (int i = 0; i < created.length; i++) {
+            if (created[i] instanceof Army) {
+                ((Army) created[i]).setId(ids[i]);
+                armyIds.put(ids[i], (Army) created[i]);
+            } else if (created[i] instanceof Building) {
+                ((Building) created[i]).setId(ids[i]);
+                buildingIds.put(ids[i], (Building) created[i]);
+            }
+        }
+    }
+
+    private void report(String[] errors) {
+        int next = 0;
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] == null) continue;
+            WeeklyCommand command = commands.get(i);
+            while (next < compileProblems.size() && compileProblems.get(next).getLineNumber() < command.getLineNumber()) {
+                report(compileProblems.get(next++));
+            }
+            report(command.getLineNumber(), command.getLine(), errors[i]);
+        }
+        while (next < compileProblems.size()) {
+            report(compileProblems.get(next++));
+        }
+    }
+
+    private static void report(Problem problem) {
+        report(problem.getLineNumber(), problem.getLine(), problem.getMessage());
+    }
+
+    private static void report(int lineNumber, String line, String message) {
+        System.err.println("Error processing command on line " + lineNumber + ": " + line + " - " + message);
+    }
+
+}
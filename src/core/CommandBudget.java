@@ -0,0 +1,164 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class CommandBudget {
+
+    private static class Queued {
+        private final String type;
+        private final String name;
+        private final Integer id;
+
+        Queued(String type, String name, Integer id) {
+            this.type = type;
+            this.name = name;
+            this.id = id;
+        }
+    }
+
+    private static class Ledger {
+        private final Faction faction;
+        private final Resources resources = new Resources();
+        private final Map<String, Integer> armyIds = new LinkedHashMap<>();
+        private final Map<String, Long> armyPopulations = new HashMap<>();
+        private final Map<String, Integer> buildingCounts = new HashMap<>();
+        private final List<Queued> queue = new ArrayList<>();
+        private long population;
+        private int builtCount;
+
+        Ledger(Faction faction) {
+            this.faction = faction;
+            this.population = faction.getPopulation();
+            this.builtCount = faction.getBuildings().size();
+            for (int i = 0; i < ResourceType.count(); i++) {
+                resources.set(i, faction.getResources().get(i));
+            }
+            for (Army army : faction.getArmies().values()) {
+                armyIds.put(army.getKey(), army.getId());
+                armyPopulations.put(army.getKey(), army.getPopulation());
+            }
+            for (Building building : faction.getBuildingQueueView()) {
+                queue.add(new Queued(building.getType(), building.getName(), building.getId()));
+            }
+        }
+
+        int buildingCount(String type) {
+            Integer count = buildingCounts.get(type);
+            return count != null ? count : faction.getBuildings().count(type);
+        }
+
+        String findArmy(WeeklyCommand.ArmyRef ref) {
+            if (ref.getKey() != null) {
+                return armyIds.containsKey(ref.getKey()) ? ref.getKey() : null;
+            }
+            for (Map.Entry<String, Integer> entry : armyIds.entrySet()) {
+                if (ref.getId() != null && entry.getValue().equals(ref.getId())) {
+                    return entry.getKey();
+                }
+            }
+            return null;
+        }
+
+        String requireArmy(WeeklyCommand.ArmyRef ref) throws Exception {
+            String key = findArmy(ref);
+            if (key == null) throw new Exception("Army not found: " + ref);
+            return key;
+        }
+    }
+
+    private final Map<Faction, Ledger> ledgers = new HashMap<>();
+    private int nextArmyId;
+
+    CommandBudget(FactionRegistry registry) {
+        this.nextArmyId = registry.getArmyIds().getNextId();
+    }
+
+    private Ledger ledger(Faction faction) {
+        return ledgers.computeIfAbsent(faction, Ledger::new);
+    }
+
+    void createArmy(Faction faction, String name, long amount) throws Exception {
+        Ledger ledger = ledger(faction);
+        if (amount <= 0 || amount > ledger.population) {
+            throw new Exception("Cannot create army: insufficient population");
+        }
+        ledger.population -= amount;
+        String key = Army.keyOf(name);
+        ledger.armyIds.put(key, nextArmyId++);
+        ledger.armyPopulations.put(key, amount);
+    }
+
+    void attack(Faction faction, WeeklyCommand.ArmyRef army) throws Exception {
+        Ledger ledger = ledger(faction);
+        if (ledger.armyPopulations.get(ledger.requireArmy(army)) <= 0) {
+            throw new Exception("Cannot attack with army: " + army + " (army must be alive)");
+        }
+    }
+
+    void protect(Faction faction, WeeklyCommand.ArmyRef army, WeeklyCommand.ArmyRef targetArmy) throws Exception {
+        Ledger ledger = ledger(faction);
+        String protector = ledger.requireArmy(army);
+        if (targetArmy == null) {
+            return;
+        }
+
+        String target = ledger.findArmy(targetArmy);
+        if (target == null) throw new Exception("Target not found: " + targetArmy);
+        ledger.armyPopulations.merge(target, ledger.armyPopulations.get(protector), Saturating::add);
+        ledger.armyIds.remove(protector);
+        ledger.armyPopulations.remove(protector);
+    }
+
+    void retreat(Faction faction, WeeklyCommand.ArmyRef army) throws Exception {
+        ledger(faction).requireArmy(army);
+    }
+
+    void queueBuilding(Faction faction, BuildingDefinition definition) throws Exception {
+        Ledger ledger = ledger(faction);
+        if (!ActionValidator.canQueueBuilding(faction, definition, ledger.queue.size(), ledger.resources)) {
+            throw new Exception("Cannot queue building: insufficient resources or already constructing");
+        }
+
+        String type = definition.getType();
+        int totalOfType = ledger.buildingCount(type);
+        for (Queued queued : ledger.queue) {
+            if (queued.type.equals(type)) {
+                totalOfType++;
+            }
+        }
+        faction.checkBuildingLimits(definition, ledger.queue.size(), totalOfType);
+
+        ledger.resources.subtract(definition.getConstructionCostVector());
+        ledger.queue.add(new Queued(type, definition.nameFor(ledger.builtCount + ledger.queue.size() + 1), null));
+    }
+
+    void demolishBuilding(Faction faction, String building) throws Exception {
+        Ledger ledger = ledger(faction);
+        String type = faction.getBuildings().findType(building);
+        if (type == null || ledger.buildingCount(type) <= 0) {
+            throw new Exception("Cannot demolish building: building not found or not complete");
+        }
+
+        ledger.buildingCounts.put(type, ledger.buildingCount(type) - 1);
+        ledger.builtCount--;
+        BuildingDefinition.get(type).refundDemolition(ledger.resources);
+    }
+
+    void postponeBuilding(Faction faction, String building) throws Exception {
+        Ledger ledger = ledger(faction);
+        String idText = building.startsWith("#") ? building.substring(1) : building;
+        for (Queued queued : ledger.queue) {
+            if ((queued.id != null && String.valueOf(queued.id).equals(idText)) || queued.name.equals(building)) {
+                ledger.queue.remove(queued);
+                ledger.queue.add(queued);
+                return;
+            }
+        }
+        throw new Exception("Building not found in queue: " + building);
+    }
+
+}
@@ -0,0 +1,385 @@
+package core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+public class CommandJournal {
+
+    private static final int KIND_WEEK = 1;
+    private static final int KIND_BASE = 2;
+    private static final int FRAME_OVERHEAD = 8;
+    private static final int HEADER_SIZE = 18;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private TreeMap<Integer, Entry> timeline;
+    private int entryCount;
+    private long validEnd;
+
+    public static class Entry {
+        private final CommandJournal journal;
+        private final int kind;
+        private final int week;
+        private final long seed;
+        private final int commandCount;
+        private final int length;
+        private long offset;
+
+        private Entry(CommandJournal journal, int kind, int week, long seed, int commandCount, long offset, int length) {
+            this.journal = journal;
+            this.kind = kind;
+            this.week = week;
+            this.seed = seed;
+            this.commandCount = commandCount;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public int getWeek() {
+            return week;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public boolean hasCommands() {
+            return commandCount > 0;
+        }
+
+        public List<String> getCommands() throws IOException {
+            return journal.readCommands(this);
+        }
+
+        public CommandBatch compile(FactionRegistry registry) throws IOException {
+            return CommandBatch.compile(getCommands(), registry);
+        }
+    }
+
+    public CommandJournal(File file) {
+        this.file = file;
+    }
+
+    public static void replayWeek(FactionRegistry registry, long seed, List<String> commands,
+                                  ActorRuntime runtime, WeekResolver resolver) {
+        replayWeek(registry, seed, CommandBatch.compile(commands, registry), runtime, resolver);
+    }
+
+    public static void replayWeek(FactionRegistry registry, long seed, CommandBatch commands,
+                                  ActorRuntime runtime, WeekResolver resolver) {
+        reseed(registry, seed);
+        commands.apply(runtime);
+        resolver.resolve(registry);
+    }
+
+    public static void replayIdleWeeks(FactionRegistry registry, long lastSeed, int weeks) {
+        reseed(registry, lastSeed);
+        FastForward.fastForward(registry, weeks);
+    }
+
+    private static void reseed(FactionRegistry registry, long seed) {
+        for (Faction faction : registry.getFactionsInOrder()) {
+            faction.getResearch().reseed(seed ^ ((long) faction.getName().hashCode() << 32));
+        }
+    }
+
+    public synchronized void record(int week, long seed, List<String> commands) throws IOException {
+        append(KIND_WEEK, week, seed, commands);
+    }
+
+    public synchronized void record(int week, long seed, CommandBatch batch) throws IOException {
+        List<WeeklyCommand> commands = batch.getCommands();
+        append(KIND_WEEK, week, seed, () -> new Iterator<String>() {
+            private int index;
+            private Faction faction;
+
+            @Override
+            public boolean hasNext() {
+                return index < commands.size();
+            }
+
+            @Override
+            public String next() {
+                WeeklyCommand command = commands.get(index);
+                if (command.getFaction() != faction) {
+                    faction = command.getFaction();
+                    return "FACTION " + faction.getName();
+                }
+                index++;
+                return command.getLine();
+            }
+        });
+    }
+
+    public synchronized void markBase(int week) throws IOException {
+        append(KIND_BASE, week, 0L, Collections.emptyList());
+    }
+
+    public synchronized Map<Integer, Entry> readTimeline() throws IOException {
+        return new TreeMap<>(timeline());
+    }
+
+    public synchronized boolean compact() throws IOException {
+        TreeMap<Integer, Entry> current = timeline();
+        if (entryCount == current.size()) {
+            return false;
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        File temp = new File(parent, file.getName() + ".tmp");
+        long[] offsets = new long[current.size()];
+        long end = 0;
+        try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(temp.toPath(),
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            int index = 0;
+            for (Entry entry : current.values()) {
+                long position = entry.offset - 4;
+                long remaining = entry.length + FRAME_OVERHEAD;
+                offsets[index++] = end + 4;
+                end += remaining;
+                while (remaining > 0) {
+                    long copied = source.transferTo(position, remaining, target);
+                    if (copied <= 0) {
+                        throw new IOException("Journal is truncated: " + file.getName());
+                    }
+                    position += copied;
+                    remaining -= copied;
+                }
+            }
+            target.force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        BinarySnapshot.syncDirectory(parent);
+
+        int index = 0;
+        for (Entry entry : current.values()) {
+            entry.offset = offsets[index++];
+        }
+        entryCount = current.size();
+        validEnd = end;
+        return true;
+    }
+
+    private synchronized List<String> readCommands(Entry entry) throws IOException {
+        if (entry.offset < 0) {
+            throw new IOException("Journal entry for week " + entry.week + " was superseded");
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(entry.length + 4);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            readFully(channel, frame, entry.offset);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), 0, entry.length);
+        if ((int) crc.getValue() != frame.getInt(entry.length)) {
+            throw new IOException("Journal entry for week " + entry.week + " is damaged");
+        }
+
+        frame.limit(entry.length);
+        SnapshotDecoder in = new SnapshotDecoder(frame);
+        in.readByte();
+        in.readInt();
+        in.readLong();
+        int count = in.readVarInt();
+        List<String> commands = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            commands.add(in.readString());
+        }
+        return commands;
+    }
+
+    private TreeMap<Integer, Entry> timeline() throws IOException {
+        if (timeline == null) {
+            timeline = new TreeMap<>();
+            entryCount = 0;
+            validEnd = 0;
+            scan();
+        }
+        return timeline;
+    }
+
+    private void apply(Entry entry) {
+        Map<Integer, Entry> superseded = timeline.tailMap(entry.week, true);
+        for (Entry old : superseded.values()) {
+            old.offset = -1;
+        }
+        superseded.clear();
+        if (entry.kind == KIND_WEEK) {
+            timeline.put(entry.week, entry);
+        }
+        entryCount++;
+    }
+
+    private void append(int kind, int week, long seed, Iterable<String> commands) throws IOException {
+        timeline();
+        int count = 0;
+        long length = 1 + 4 + 8;
+        for (String command : commands) {
+            int bytes = command.getBytes(StandardCharsets.UTF_8).length;
+            length += varIntSize(bytes) + bytes;
+            count++;
+        }
+        length += varIntSize(count);
+        if (length > Integer.MAX_VALUE - FRAME_OVERHEAD) {
+            throw new IOException("Too many commands to journal for week " + week);
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(parent.toPath());
+        boolean created = !file.exists();
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() > validEnd) {
+                channel.truncate(validEnd);
+            }
+            channel.position(validEnd);
+
+            FrameWriter frame = new FrameWriter(channel);
+            frame.buffer.putInt((int) length);
+            frame.checked = frame.buffer.position();
+            frame.buffer.put((byte) kind).putInt(week).putLong(seed);
+            frame.putVarInt(count);
+            for (String command : commands) {
+                byte[] bytes = command.getBytes(StandardCharsets.UTF_8);
+                frame.putVarInt(bytes.length);
+                frame.put(bytes);
+            }
+            frame.flush();
+            frame.buffer.putInt((int) frame.crc.getValue());
+            frame.checked = frame.buffer.position();
+            frame.flush();
+            channel.force(true);
+        }
+        if (created) {
+            BinarySnapshot.syncDirectory(parent);
+        }
+        Entry entry = new Entry(this, kind, week, seed, count, validEnd + 4, (int) length);
+        validEnd += length + FRAME_OVERHEAD;
+        apply(entry);
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static class FrameWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+        private int checked;
+
+        FrameWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void putVarInt(int value) throws IOException {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        void flush() throws IOException {
+            crc.update(buffer.array(), checked, buffer.position() - checked);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            checked = 0;
+        }
+    }
+
+    private void scan() throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            ByteBuffer chunk = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            while (size - validEnd >= FRAME_OVERHEAD) {
+                header.clear().limit(4);
+                readFully(channel, header, validEnd);
+                int length = header.getInt(0);
+                if (length <= 0 || length > size - validEnd - FRAME_OVERHEAD) {
+                    break;
+                }
+
+                long start = validEnd + 4;
+                long end = start + length;
+                CRC32 crc = new CRC32();
+                for (long position = start; position < end; position += chunk.limit()) {
+                    chunk.clear().limit((int) Math.min(chunk.capacity(), end - position));
+                    readFully(channel, chunk, position);
+                    crc.update(chunk.array(), 0, chunk.limit());
+                    if (position == start) {
+                        header.clear().limit(Math.min(HEADER_SIZE, chunk.limit()));
+                        header.put(chunk.array(), 0, header.limit()).flip();
+                    }
+                }
+                ByteBuffer checksum = ByteBuffer.allocate(4);
+                readFully(channel, checksum, end);
+                if ((int) crc.getValue() != checksum.getInt(0)) {
+                    break;
+                }
+
+                SnapshotDecoder in = new SnapshotDecoder(header);
+                int kind = in.readByte();
+                int week = in.readInt();
+                long seed = in.readLong();
+                int count = in.readVarInt();
+                apply(new Entry(this, kind, week, seed, count, start, length));
+                validEnd = end + 4;
+            }
+        }
+    }
+
+    private void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Journal is truncated: " + file.getName());
+            }
+        }
+        buffer.flip();
+    }
+
+}
@@ -0,0 +1,204 @@
+package core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class CommandTokenizer implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final Iterator<String> lines;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private boolean skipLineFeed;
+    private char[] line;
+    private int lineLength;
+    private int lineStart;
+    private int lineEnd;
+    private int lineNumber;
+    private String[] tokens;
+    private int tokenCount;
+
+    public CommandTokenizer(Reader reader) {
+        this(reader, null);
+    }
+
+    public CommandTokenizer(List<String> lines) {
+        this(null, lines.iterator());
+    }
+
+    private CommandTokenizer(Reader reader, Iterator<String> lines) {
+        this.reader = reader;
+        this.lines = lines;
+        this.buffer = reader != null ? new char[BUFFER_SIZE] : null;
+        this.line = new char[256];
+        this.tokens = new String[8];
+    }
+
+    public static CommandTokenizer open(File file) throws IOException {
+        return new CommandTokenizer(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8.newDecoder()));
+    }
+
+    public boolean next() throws IOException {
+        while (readLine()) {
+            lineNumber++;
+            int start = 0;
+            int end = lineLength;
+            while (start < end && line[start] <= ' ') {
+                start++;
+            }
+            while (end > start && line[end - 1] <= ' ') {
+                end--;
+            }
+            if (start == end || line[start] == '#') {
+                continue;
+            }
+
+            lineStart = start;
+            lineEnd = end;
+            split(start, end);
+            if (tokenCount > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return tokenCount;
+    }
+
+    public String get(int index) {
+        if (index >= tokenCount) {
+            throw new IndexOutOfBoundsException("Token " + index + " of " + tokenCount);
+        }
+        return tokens[index];
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getLine() {
+        return new String(line, lineStart, lineEnd - lineStart);
+    }
+
+    public String[] copyTokens() {
+        return Arrays.copyOf(tokens, tokenCount);
+    }
+
+    String[] tokens() {
+        return tokens;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        if (reader == null) {
+            if (!lines.hasNext()) {
+                return false;
+            }
+            String next = lines.next();
+            ensureLineCapacity(next.length());
+            next.getChars(0, next.length(), line, 0);
+            lineLength = next.length();
+            return true;
+        }
+
+        boolean read = false;
+        while (true) {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return read;
+                }
+            }
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (buffer[position] == '\n') {
+                    position++;
+                    continue;
+                }
+            }
+
+            read = true;
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '\n' || c == '\r') {
+                    appendLine(start, position);
+                    position++;
+                    skipLineFeed = c == '\r';
+                    return true;
+                }
+                position++;
+            }
+            appendLine(start, position);
+        }
+    }
+
+    private void appendLine(int from, int to) {
+        ensureLineCapacity(lineLength + to - from);
+        System.arraycopy(buffer, from, line, lineLength, to - from);
+        lineLength += to - from;
+    }
+
+    private void ensureLineCapacity(int capacity) {
+        if (capacity > line.length) {
+            line = Arrays.copyOf(line, Math.max(capacity, line.length * 2));
+        }
+    }
+
+    private void split(int start, int end) {
+        tokenCount = 0;
+        int tokenStart = start;
+        int i = start;
+        while (i < end) {
+            char c = line[i];
+            if (c == ',' || isSpace(c)) {
+                addToken(tokenStart, i);
+                i++;
+                while (i < end && isSpace(line[i])) {
+                    i++;
+                }
+                tokenStart = i;
+            } else {
+                i++;
+            }
+        }
+        addToken(tokenStart, end);
+        while (tokenCount > 0 && tokens[tokenCount - 1].isEmpty()) {
+            tokenCount--;
+        }
+    }
+
+    private void addToken(int from, int to) {
+        if (tokenCount == tokens.length) {
+            tokens = Arrays.copyOf(tokens, tokens.length * 2);
+        }
+        tokens[tokenCount++] = from == to ? "" : new String(line, from, to - from);
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+}
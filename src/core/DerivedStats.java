@@ -0,0 +1,128 @@
+package core;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DerivedStats {
+
+    private static final Map<String, Integer> SLOTS = new ConcurrentHashMap<>();
+    private static int slotCount = 0;
+    private static volatile int[] productionSlots = new int[0];
+    private static volatile int[] consumptionSlots = new int[0];
+
+    public static final int ACTION_POINTS = slot("actionPoints");
+    public static final int MAX_CONCURRENT_BUILDINGS = slot("maxConcurrentBuildings");
+    public static final int POPULATION_GROWTH = slot("populationGrowthModifier");
+    public static final int POPULATION_CONSUMPTION = slot("populationConsumptionModifier");
+    public static final int ARMY_MIGHT_BONUS = slot("armyMightBonus");
+
+    private final Map<String, Map<String, Integer>> sources;
+    private int[] values;
+    private boolean dirty;
+
+    public DerivedStats() {
+        this.sources = new LinkedHashMap<>();
+        this.values = new int[0];
+        this.dirty = true;
+    }
+
+    public static int slot(String statName) {
+        Integer existing = SLOTS.get(statName);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (SLOTS) {
+            return SLOTS.computeIfAbsent(statName, name -> slotCount++);
+        }
+    }
+
+    public static int slotCount() {
+        synchronized (SLOTS) {
+            return slotCount;
+        }
+    }
+
+    public static int productionSlot(int resourceIndex) {
+        int[] slots = productionSlots;
+        if (resourceIndex < slots.length) {
+            return slots[resourceIndex];
+        }
+        return resourceSlots(true)[resourceIndex];
+    }
+
+    public static int consumptionSlot(int resourceIndex) {
+        int[] slots = consumptionSlots;
+        if (resourceIndex < slots.length) {
+            return slots[resourceIndex];
+        }
+        return resourceSlots(false)[resourceIndex];
+    }
+
+    private static synchronized int[] resourceSlots(boolean production) {
+        int count = ResourceType.count();
+        int[] newProduction = Arrays.copyOf(productionSlots, count);
+        int[] newConsumption = Arrays.copyOf(consumptionSlots, count);
+        for (int i = 0; i < count; i++) {
+            newProduction[i] = slot(ResourceType.productionTraitKey(i));
+            newConsumption[i] = slot(ResourceType.consumptionTraitKey(i));
+        }
+        productionSlots = newProduction;
+        consumptionSlots = newConsumption;
+        return production ? newProduction : newConsumption;
+    }
+
+    public static int buildingLimitSlot(String buildingType) {
+        return slot("maxBuildingType_" + buildingType);
+    }
+
+    public void putSource(String sourceName, Map<String, Integer> modifiers) {
+        sources.put(sourceName, modifiers);
+        dirty = true;
+    }
+
+    public void removeSource(String sourceName) {
+        if (sources.remove(sourceName) != null) {
+            dirty = true;
+        }
+    }
+
+    public void invalidate() {
+        dirty = true;
+    }
+
+    public int get(int slot) {
+        if (dirty) {
+            recompute();
+        }
+        return slot < values.length ? values[slot] : 0;
+    }
+
+    public int get(String statName) {
+        return get(slot(statName));
+    }
+
+    private void recompute() {
+        for (Map<String, Integer> modifiers : sources.values()) {
+            for (String statName : modifiers.keySet()) {
+                slot(statName);
+            }
+        }
+
+        int count = slotCount();
+        if (values.length != count) {
+            values = new int[count];
+        } else {
+            Arrays.fill(values, 0);
+        }
+
+        for (Map<String, Integer> modifiers : sources.values()) {
+            for (Map.Entry<String, Integer> entry : modifiers.entrySet()) {
+                values[slot(entry.getKey())] += entry.getValue();
+            }
+        }
+        dirty = false;
+    }
+
+}
@@ -6,25 +6,32 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 
 public abstract class Faction {
 
     protected String name;
-    protected int population;
+    protected long population;
     protected int actionPoints;
     protected int usedActionPoints;
-    protected int might;
+    protected long might;
 
     protected Resources resources;
     protected Map<String, Army> armies;
+    protected IdTable<Army> armyIds;
+    protected IdTable<Building> buildingIds;
     protected int armyCounter;
-    protected Map<String, Building> buildings;
+    protected BuildingStore buildings;
     protected List<Building> buildingQueue;
+    private final List<Building> buildingQueueView;
     protected int maxConcurrentBuildings;
     protected Research research;
     protected String features;
     protected double populationSurplusModifier;
     protected Traits traits;
+    private long armiesVersion;
+    private long queueVersion;
+    private long featuresVersion;
 
     protected Properties config;
     protected Properties state;
@@ -38,15 +45,20 @@ public abstract class Faction {
         this.stateFile = new File("saved/" + name.replace(" ", "_") + ".state");
         this.resources = new Resources();
         this.armies = new HashMap<>();
+        this.armyIds = new IdTable<>();
+        this.buildingIds = new IdTable<>();
         this.armyCounter = 0;
         this.usedActionPoints = 0;
-        this.buildings = new HashMap<>();
+        this.buildings = new BuildingStore();
         this.buildingQueue = new ArrayList<>();
+        this.buildingQueueView = Collections.unmodifiableList(buildingQueue);
         this.maxConcurrentBuildings = 1;
         this.research = new Research();
         this.features = "";
         this.populationSurplusModifier = 0.1;
         this.traits = new Traits();
+        this.buildings.attachStats(traits.getStats());
+        this.research.attachStats(traits.getStats());
         this.config = new Properties();
         this.state = new Properties();
     }
@@ -54,13 +66,70 @@ public abstract class Faction {
     protected void initializeTraits() {
     }
 
+    public void attachIds(IdTable<Army> armyIds, IdTable<Building> buildingIds) {
+        for (Army army : armies.values()) {
+            this.armyIds.remove(army.getId());
+            army.setId(armyIds.add(army));
+        }
+        for (Building building : buildingQueue) {
+            this.buildingIds.remove(building.getId());
+            building.setId(buildingIds.add(building));
+        }
+        this.armyIds = armyIds;
+        this.buildingIds = buildingIds;
+    }
+
+    void clearLoadedState() {
+        for (Army army : armies.values()) {
+            armyIds.remove(army.getId());
+        }
+        armies.clear();
+        for (Building building : buildingQueue) {
+            buildingIds.remove(building.getId());
+        }
+        buildingQueue.clear();
+        buildings.clear();
+        armiesVersion = StateVersion.next();
+        queueVersion = StateVersion.next();
+    }
+
+    void restoreArmy(Army army, int id) {
+        if (id > 0 && armyIds.isFree(id)) {
+            armyIds.put(id, army);
+            army.setId(id);
+        } else {
+            army.setId(armyIds.add(army));
+        }
+        Army previous = armies.put(army.getKey(), army);
+        if (previous != null) {
+            armyIds.remove(previous.getId());
+        }
+        armiesVersion = StateVersion.next();
+    }
+
+    void restoreQueuedBuilding(Building building, int id) {
+        if (id > 0 && buildingIds.isFree(id)) {
+            buildingIds.put(id, building);
+            building.setId(id);
+        } else {
+            building.setId(buildingIds.add(building));
+        }
+        buildingQueue.add(building);
+        queueVersion = StateVersion.next();
+    }
+
+    void restoreNextIds(int nextArmyId, int nextBuildingId) {
+        armyIds.restoreNextId(nextArmyId);
+        buildingIds.restoreNextId(nextBuildingId);
+    }
+
     public void loadFactionData() throws IOException {
         if (configFile.exists()) {
             config.load(new FileInputStream(configFile));
-            population = Integer.parseInt(config.getProperty("population", "1000"));
-            resources.setFood(Integer.parseInt(config.getProperty("food", "500")));
-            resources.setWood(Integer.parseInt(config.getProperty("wood", "200")));
-            resources.setStone(Integer.parseInt(config.getProperty("stone", "200")));
+            population = Long.parseLong(config.getProperty("population", "1000"));
+            resources.setFood(Long.parseLong(config.getProperty("food", "500")));
+            resources.setWood(Long.parseLong(config.getProperty("wood", "200")));
+            resources.setStone(Long.parseLong(config.getProperty("stone", "200")));
             
             String maxConcurrentStr = config.getProperty("maxConcurrentBuildings");
             if (maxConcurrentStr != null && !maxConcurrentStr.isEmpty()) {
@@ -73,7 +142,7 @@ public abstract class Faction {
                     String[] parts = armyEntry.split(":");
                     if (parts.length == 2) {
                         String armyName = parts[0].trim();
-                        int armyPopulation = Integer.parseInt(parts[1].trim());
+                        long armyPopulation = Long.parseLong(parts[1].trim());
                         createArmy(armyName, armyPopulation);
                     }
                 }
@@ -94,14 +163,26 @@ public abstract class Faction {
     }
 
     public void processWeek() {
+        processEconomy();
+        processMilitary();
+        processGrowth();
+    }
+
+    public void processEconomy() {
         calculateActionPoints();
         consumeFood();
         applyFoodPopulationPenalty();
         processBuildings();
         applyBuildingProduction();
         applyBuildingUpkeep();
+    }
+
+    public void processMilitary() {
         processArmies();
         calculateMight();
+    }
+
+    public void processGrowth() {
         applyPopulationGrowth();
         resetWeeklyState();
     }
@@ -116,38 +197,54 @@ public abstract class Faction {
     }
 
     protected void consumeFood() {
-        int baseConsumption = (population + getTotalArmiesPopulation()) / 2;
-        int consumptionModifier = traits.getPopulationConsumptionModifier();
-        int weeklyConsumption = Math.max(0, baseConsumption + consumptionModifier);
-        int currentFood = resources.getFood();
+        long baseConsumption = Saturating.add(population, getTotalArmiesPopulation()) / getFoodConsumptionDivisor();
+        int consumptionModifier = appliesConsumptionModifier() ? traits.getPopulationConsumptionModifier() : 0;
+        long weeklyConsumption = Math.max(0, Saturating.add(baseConsumption, consumptionModifier));
+        long currentFood = resources.getFood();
 
         if (currentFood < weeklyConsumption) {
             resources.setFood(0);
-            int populationToStarve = weeklyConsumption - currentFood;
+            long populationToStarve = weeklyConsumption - currentFood;
             population = Math.max(0, population - populationToStarve);
         } else {
             resources.setFood(currentFood - weeklyConsumption);
         }
+
+        if (capsPopulationToFood() && resources.getFood() < population && resources.getFood() > 0) {
+            population = resources.getFood();
+        }
+    }
+
+    protected int getFoodConsumptionDivisor() {
+        return 2;
+    }
+
+    protected boolean appliesConsumptionModifier() {
+        return true;
+    }
+
+    protected boolean capsPopulationToFood() {
+        return false;
     }
 
     protected void applyFoodPopulationPenalty() {
-        int currentFood = resources.getFood();
+        long currentFood = resources.getFood();
         if (currentFood < population) {
-            int difference = population - currentFood;
+            long difference = population - currentFood;
             double percentageReduction = (double) difference / population;
-            population = (int) (population * (1 - percentageReduction));
+            population = (long) (population * (1 - percentageReduction));
         }
     }
 
     protected void applyPopulationGrowth() {
-        int currentFood = resources.getFood();
+        long currentFood = resources.getFood();
         if (currentFood >= population) {
-            int populationSurplus = currentFood - population;
+            long populationSurplus = currentFood - population;
             double baseGrowthMultiplier = 1.0 + (population / 4.0 / population);
             int growthModifier = traits.getPopulationGrowthModifier();
             double effectiveGrowthMultiplier = baseGrowthMultiplier + (growthModifier * 0.01);
             double surplusContribution = populationSurplus * populationSurplusModifier;
-            int newPopulation = (int) ((population + surplusContribution) * effectiveGrowthMultiplier);
+            long newPopulation = (long) ((population + surplusContribution) * effectiveGrowthMultiplier);
             population = newPopulation;
         }
     }
@@ -155,7 +252,7 @@ public abstract class Faction {
     protected void calculateMight() {
         might = 0;
         for (Army army : armies.values()) {
-            might += army.getMight();
+            might = Saturating.add(might, army.getMight());
         }
     }
 
@@ -167,21 +264,41 @@ public abstract class Faction {
         FactionStateFormatter.save(this, stateFile);
     }
 
-    public void createArmy(String name, int amount) {
-        if (amount <= 0 || amount > population) return;
+    public Army createArmy(String name, long amount) {
+        if (amount <= 0 || amount > population) return null;
         population -= amount;
         armyCounter++;
 
         Army army = new Army(name != null ? name : "army_" + armyCounter, amount);
-        int mightBonus = traits.getTrait("armyMightBonus");
+        int mightBonus = traits.getArmyMightBonus();
         if (mightBonus != 0) {
             army.setMightModifier(mightBonus);
         }
-        armies.put(army.getId(), army);
+        army.setId(armyIds.add(army));
+        Army previous = armies.put(army.getKey(), army);
+        if (previous != null) {
+            armyIds.remove(previous.getId());
+        }
+        armiesVersion = StateVersion.next();
+        return army;
+    }
+
+    public Army removeArmy(String nameOrId) {
+        Army army = getArmy(nameOrId);
+        if (army != null) {
+            removeArmy(army);
+        }
+        return army;
+    }
+
+    void removeArmy(Army army) {
+        armies.remove(army.getKey());
+        armyIds.remove(army.getId());
+        armiesVersion = StateVersion.next();
     }
 
-    public void reinforceArmy(String id, int amount) {
-        Army army = armies.get(id);
+    public void reinforceArmy(String id, long amount) {
+        Army army = getArmy(id);
         if (army == null || amount <= 0 || amount > population) return;
 
         population -= amount;
@@ -194,8 +311,7 @@ public abstract class Faction {
             throw new IllegalArgumentException("Unknown building type: " + buildingType);
         }
 
-        Building building = def.createCompleted(buildingType + "_" + (buildings.size() + 1));
-        buildings.put(building.getId(), building);
+        buildings.add(def);
     }
 
     public void queueBuilding(String buildingType) {
@@ -203,41 +319,47 @@ public abstract class Faction {
         if (def == null) {
             throw new IllegalArgumentException("Unknown building type: " + buildingType);
         }
+        queueBuilding(def);
+    }
+
+    public Building queueBuilding(BuildingDefinition def) {
+        String buildingType = def.getType();
+        int buildingsOfTypeUnderConstruction = 0;
+        for (Building constructing : buildingQueue) {
+            if (constructing.getType().equals(buildingType)) {
+                buildingsOfTypeUnderConstruction++;
+            }
+        }
+        checkBuildingLimits(def, buildingQueue.size(), buildingsOfTypeUnderConstruction + buildings.count(buildingType));
 
+        resources.subtract(def.getConstructionCostVector());
+
+        Building building = def.createConstructing(def.nameFor(buildings.size() + buildingQueue.size() + 1));
+        building.setId(buildingIds.add(building));
+        buildingQueue.add(building);
+        queueVersion = StateVersion.next();
+        return building;
+    }
+
+    void checkBuildingLimits(BuildingDefinition def, int queued, int totalOfType) {
         int effectiveMaxConcurrent = getEffectiveMaxConcurrentBuildings();
-        if (buildingQueue.size() >= effectiveMaxConcurrent) {
+        if (queued >= effectiveMaxConcurrent) {
             throw new IllegalStateException("Building queue is full (max: " + effectiveMaxConcurrent + ")");
         }
 
-        int buildingsOfTypeUnderConstruction = (int) buildingQueue.stream()
-                .filter(b -> b.getType().equals(buildingType))
-                .count();
-        
-        int buildingsOfTypeCompleted = (int) buildings.values().stream()
-                .filter(b -> b.getType().equals(buildingType))
-                .count();
-        
-        int totalOfType = buildingsOfTypeUnderConstruction + buildingsOfTypeCompleted;
-        int effectiveMaxOfType = def.getMaxConcurrentOfType() + traits.getMaxBuildingTypeLimit(buildingType);
-        
+        int effectiveMaxOfType = def.getMaxConcurrentOfType() + traits.getMaxBuildingTypeLimit(def.getType());
         if (totalOfType >= effectiveMaxOfType) {
-            throw new IllegalStateException("Cannot build more " + buildingType + " (max: " + effectiveMaxOfType + ")");
-        }
-
-        Map<String, Integer> cost = def.getConstructionCost();
-        for (Map.Entry<String, Integer> entry : cost.entrySet()) {
-            resources.subtract(entry.getKey(), entry.getValue());
+            throw new IllegalStateException("Cannot build more " + def.getType() + " (max: " + effectiveMaxOfType + ")");
         }
-
-        Building building = def.createConstructing(buildingType + "_" + (buildings.size() + buildingQueue.size() + 1));
-        buildingQueue.add(building);
     }
 
     public void postponeBuilding(String buildingId) {
+        String idText = buildingId.startsWith("#") ? buildingId.substring(1) : buildingId;
         for (Building building : buildingQueue) {
-            if (building.getId().equals(buildingId)) {
+            if (String.valueOf(building.getId()).equals(idText) || building.getName().equals(buildingId)) {
                 buildingQueue.remove(building);
                 buildingQueue.add(building);
+                queueVersion = StateVersion.next();
                 return;
             }
         }
@@ -245,12 +367,9 @@ public abstract class Faction {
     }
 
     public void demolishBuilding(String buildingId) {
-        Building building = buildings.remove(buildingId);
-        if (building != null) {
-            Map<String, Integer> cost = building.getConstructionCost();
-            for (Map.Entry<String, Integer> entry : cost.entrySet()) {
-                resources.add(entry.getKey(), (int) (entry.getValue() * 0.15));
-            }
+        String buildingType = buildings.findType(buildingId);
+        if (buildingType != null && buildings.remove(buildingType)) {
+            BuildingDefinition.get(buildingType).refundDemolition(resources);
         }
     }
 
@@ -278,46 +397,57 @@ public abstract class Faction {
     }
 
     protected void processBuildings() {
-        List<Building> completedBuildings = new ArrayList<>();
-
-        for (Building constructing : buildingQueue) {
+        int i = 0;
+        while (i < buildingQueue.size()) {
+            Building constructing = buildingQueue.get(i);
             constructing.addConstruction(1);
-            
+
             if (constructing.isComplete()) {
                 BuildingDefinition def = BuildingDefinition.get(constructing.getType());
                 if (def != null) {
-                    Building completed = def.createCompleted(constructing.getName());
-                    buildings.put(completed.getId(), completed);
+                    buildings.add(def);
                 }
-                completedBuildings.add(constructing);
+                buildingIds.remove(constructing.getId());
+                buildingQueue.remove(i);
+                queueVersion = StateVersion.next();
             } else if (constructing.isConstructionFailed()) {
-                completedBuildings.add(constructing);
+                buildingIds.remove(constructing.getId());
+                buildingQueue.remove(i);
+                queueVersion = StateVersion.next();
+            } else {
+                i++;
             }
         }
-
-        buildingQueue.removeAll(completedBuildings);
     }
 
     protected void applyBuildingProduction() {
-        for (Building building : buildings.values()) {
-            for (Map.Entry<String, Integer> entry : building.getProduction().entrySet()) {
-                String resourceType = entry.getKey();
-                int baseProduction = entry.getValue();
-                int productionModifier = traits.getResourceProductionModifier(resourceType);
-                int effectiveProduction = baseProduction + productionModifier;
-                resources.add(resourceType, Math.max(0, effectiveProduction));
+        for (BuildingStore.Entry entry : buildings.getEntries()) {
+            int count = entry.getCount();
+            if (count == 0) continue;
+
+            ResourceVector production = entry.getProduction();
+            for (int i = 0; i < production.size(); i++) {
+                if (production.isDefined(i)) {
+                    int productionModifier = traits.getResourceProductionModifier(i);
+                    long effectiveProduction = Saturating.add(production.get(i), (long) productionModifier * count);
+                    resources.add(i, Math.max(0, effectiveProduction));
+                }
             }
         }
     }
 
     protected void applyBuildingUpkeep() {
-        for (Building building : buildings.values()) {
-            for (Map.Entry<String, Integer> entry : building.getUpkeep().entrySet()) {
-                String resourceType = entry.getKey();
-                int baseUpkeep = entry.getValue();
-                int consumptionModifier = traits.getResourceConsumptionModifier(resourceType);
-                int effectiveUpkeep = baseUpkeep + consumptionModifier;
-                resources.subtract(resourceType, Math.max(0, effectiveUpkeep));
+        for (BuildingStore.Entry entry : buildings.getEntries()) {
+            int count = entry.getCount();
+            if (count == 0) continue;
+
+            ResourceVector upkeep = entry.getUpkeep();
+            for (int i = 0; i < upkeep.size(); i++) {
+                if (upkeep.isDefined(i)) {
+                    int consumptionModifier = traits.getResourceConsumptionModifier(i);
+                    long effectiveUpkeep = Saturating.add(upkeep.get(i), (long) consumptionModifier * count);
+                    resources.subtract(i, Math.max(0, effectiveUpkeep));
+                }
             }
         }
     }
@@ -341,15 +471,19 @@ public abstract class Faction {
     protected void resolveCombat(Army army) {
     }
 
-    public int getTotalArmiesPopulation() {
-        return armies.values().stream().mapToInt(Army::getPopulation).sum();
+    public long getTotalArmiesPopulation() {
+        long total = 0;
+        for (Army army : armies.values()) {
+            total = Saturating.add(total, army.getPopulation());
+        }
+        return total;
     }
 
     public String getName() {
         return name;
     }
 
-    public int getPopulation() {
+    public long getPopulation() {
         return population;
     }
 
@@ -376,16 +510,37 @@ public abstract class Faction {
         return armies;
     }
 
-    public Army getArmy(String id) {
-        return armies.get(id);
+    public Army getArmy(String nameOrId) {
+        if (nameOrId.startsWith("#")) {
+            try {
+                return getArmy(Integer.parseInt(nameOrId.substring(1)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return armies.get(Army.keyOf(nameOrId));
+    }
+
+    public Army getArmy(int id) {
+        Army army = armyIds.get(id);
+        return army != null && armies.get(army.getKey()) == army ? army : null;
+    }
+
+    public int getNextArmyId() {
+        return armyIds.getNextId();
     }
 
-    public Map<String, Building> getBuildings() {
+    public int getNextBuildingId() {
+        return buildingIds.getNextId();
+    }
+
+    public BuildingStore getBuildings() {
         return buildings;
     }
 
-    public Building getBuilding(String id) {
-        return buildings.get(id);
+    public int getBuildingCount(String buildingId) {
+        String buildingType = buildings.findType(buildingId);
+        return buildingType != null ? buildings.count(buildingType) : 0;
     }
 
     public Building getBuildingUnderConstruction() {
@@ -396,6 +551,10 @@ public abstract class Faction {
         return new ArrayList<>(buildingQueue);
     }
 
+    public List<Building> getBuildingQueueView() {
+        return buildingQueueView;
+    }
+
     public int getMaxConcurrentBuildings() {
         return maxConcurrentBuildings;
     }
@@ -408,7 +567,7 @@ public abstract class Faction {
         return research;
     }
 
-    public int getMight() {
+    public long getMight() {
         return might;
     }
 
@@ -418,6 +577,50 @@ public abstract class Faction {
 
     public void setFeatures(String features) {
         this.features = features != null ? features : "";
+        this.featuresVersion = StateVersion.next();
+    }
+
+    public long getResourcesVersion() {
+        return resources.getVersion();
+    }
+
+    public long getBuildingsVersion() {
+        return buildings.getVersion();
+    }
+
+    public long getQueueVersion() {
+        long version = queueVersion;
+        for (Building building : buildingQueue) {
+            version = Math.max(version, building.getVersion());
+        }
+        return version;
+    }
+
+    public long getArmiesVersion() {
+        long version = armiesVersion;
+        for (Army army : armies.values()) {
+            version = Math.max(version, army.getVersion());
+        }
+        return version;
+    }
+
+    public long getTraitsVersion() {
+        return traits.getVersion();
+    }
+
+    public long getResearchVersion() {
+        return research.getVersion();
+    }
+
+    public long getFeaturesVersion() {
+        return featuresVersion;
+    }
+
+    public long getStateVersion() {
+        long version = Math.max(getResourcesVersion(), getBuildingsVersion());
+        version = Math.max(version, Math.max(getQueueVersion(), getArmiesVersion()));
+        version = Math.max(version, Math.max(getTraitsVersion(), getResearchVersion()));
+        return Math.max(version, featuresVersion);
     }
 
     public double getPopulationSurplusModifier() {
@@ -0,0 +1,63 @@
+package core;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+public class FactionActor {
+
+    private final Faction faction;
+    private final Executor executor;
+    private final ActorRuntime runtime;
+    private final Queue<Consumer<Faction>> mailbox;
+    private final AtomicBoolean scheduled;
+
+    FactionActor(Faction faction, Executor executor, ActorRuntime runtime) {
+        this.faction = faction;
+        this.executor = executor;
+        this.runtime = runtime;
+        this.mailbox = new ConcurrentLinkedQueue<>();
+        this.scheduled = new AtomicBoolean(false);
+    }
+
+    public void tell(Consumer<Faction> message) {
+        runtime.messageQueued();
+        mailbox.add(message);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        Consumer<Faction> message;
+        while ((message = mailbox.poll()) != null) {
+            try {
+                message.accept(faction);
+            } catch (RuntimeException e) {
+                runtime.messageFailed(faction, e);
+            } finally {
+                runtime.messageProcessed();
+            }
+        }
+
+        scheduled.set(false);
+        if (!mailbox.isEmpty()) {
+            schedule();
+        }
+    }
+
+    public Faction getFaction() {
+        return faction;
+    }
+
+    public int getPendingMessages() {
+        return mailbox.size();
+    }
+
+}
@@ -0,0 +1,92 @@
+package core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class FactionIO {
+
+    public interface Task<T> {
+        void run(T item) throws IOException;
+    }
+
+    public interface IndexedTask {
+        void run(int index) throws IOException;
+    }
+
+    private static final int THREADS = Math.max(1, Integer.getInteger("brombeer.ioThreads", 4));
+    private static final ExecutorService executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "faction-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static <T> void forEach(List<T> items, Task<T> task) throws IOException {
+        forEachIndex(items.size(), index -> task.run(items.get(index)));
+    }
+
+    public static void forEachIndex(int count, IndexedTask task) throws IOException {
+        if (THREADS == 1 || count < 2) {
+            IOException first = null;
+            for (int i = 0; i < count; i++) {
+                try {
+                    task.run(i);
+                } catch (IOException | RuntimeException e) {
+                    first = aggregate(first, e);
+                }
+            }
+            if (first != null) {
+                throw first;
+            }
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> {
+                task.run(index);
+                return null;
+            }));
+        }
+
+        IOException first = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Future<?> pending : futures) {
+                    pending.cancel(true);
+                }
+                throw new InterruptedIOException("Interrupted while waiting for faction I/O");
+            } catch (ExecutionException e) {
+                first = aggregate(first, e.getCause());
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+    }
+
+    public static int getThreads() {
+        return THREADS;
+    }
+
+    private static IOException aggregate(IOException first, Throwable failure) {
+        IOException error = failure instanceof IOException
+                ? (IOException) failure
+                : new IOException(String.valueOf(failure), failure);
+        if (first == null) {
+            return error;
+        }
+        first.addSuppressed(error);
+        return first;
+    }
+
+}
@@ -1,21 +1,35 @@
 package core;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class FactionRegistry {
 
     private Map<String, Faction> factions;
+    private Map<String, Faction> factionsView;
+    private List<Faction> orderedFactions;
     private Map<String, Map<String, Integer>> distances;
+    private IdTable<Army> armyIds;
+    private IdTable<Building> buildingIds;
 
     public FactionRegistry() {
         this.factions = new HashMap<>();
+        this.factionsView = Collections.unmodifiableMap(factions);
+        this.orderedFactions = null;
         this.distances = new HashMap<>();
+        this.armyIds = new IdTable<>();
+        this.buildingIds = new IdTable<>();
     }
 
     public void registerFaction(String name, Faction faction) {
         factions.put(name, faction);
         distances.put(name, new HashMap<>());
+        faction.attachIds(armyIds, buildingIds);
+        orderedFactions = null;
     }
 
     public Faction getFaction(String name) {
@@ -26,6 +40,17 @@ public class FactionRegistry {
         return new HashMap<>(factions);
     }
 
+    public Map<String, Faction> getFactionsView() {
+        return factionsView;
+    }
+
+    public List<Faction> getFactionsInOrder() {
+        if (orderedFactions == null) {
+            orderedFactions = Collections.unmodifiableList(new ArrayList<>(new TreeMap<>(factions).values()));
+        }
+        return orderedFactions;
+    }
+
     public void setDistance(String faction1, String faction2, int weeks) {
         if (!distances.containsKey(faction1)) {
             distances.put(faction1, new HashMap<>());
@@ -45,6 +70,14 @@ public class FactionRegistry {
         return distances.get(faction1).getOrDefault(faction2, -1);
     }
 
+    public IdTable<Army> getArmyIds() {
+        return armyIds;
+    }
+
+    public IdTable<Building> getBuildingIds() {
+        return buildingIds;
+    }
+
     public boolean hasFaction(String name) {
         return factions.containsKey(name);
     }
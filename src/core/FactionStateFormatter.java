@@ -1,138 +1,176 @@
 package core;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.*;
 
 public class FactionStateFormatter {
 
-    public static void save(Faction faction, File file) throws IOException {
-        StringBuilder sb = new StringBuilder();
+    private static final int SECTION_NONE = 0;
+    private static final int SECTION_TRAITS = 1;
+    private static final int SECTION_ARMIES = 2;
+    private static final int SECTION_BUILDINGS = 3;
+    private static final int SECTION_CONSTRUCTING = 4;
+    private static final int SECTION_FEATURES = 5;
+    private static final String[] SECTION_HEADERS = {"", "Traits:", "Armies:", "Buildings:", "Constructing:", "Features:"};
+    private static final int VALUE_POPULATION = 0;
+    private static final int VALUE_NEXT_IDS = 1;
+    private static final int VALUE_RESOURCES = 2;
 
-        sb.append(faction.getName()).append("\n");
-        sb.append("Population=").append(faction.getPopulation()).append("\n");
-        sb.append("ActionPoints=").append(faction.getActionPoints()).append("\n");
-        sb.append("\n");
+    public static void save(Faction faction, File file) throws IOException {
+        file.getParentFile().mkdirs();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            write(faction, out);
+        }
+    }
 
-        sb.append("Traits:\n");
-        Traits traits = faction.getTraits();
-        if (traits.getAllTraits().isEmpty()) {
-            sb.append("  None\n");
-        } else {
-            for (Map.Entry<String, Integer> entry : traits.getAllTraits().entrySet()) {
-                String traitName = entry.getKey();
-                int value = entry.getValue();
-                Traits.TraitDefinition def = traits.getTraitDefinition(traitName);
-                
-                if (def != null) {
-                    sb.append("  ").append(def.displayName).append(": ").append(def.description).append(" [").append(traitName).append("=").append(value).append("]\n");
-                } else {
-                    sb.append("  ").append(traitName).append(": ").append(value).append("\n");
-                }
-            }
-            
-            sb.append("\n  Trait Summation:\n");
-            Map<String, Integer> summation = traits.getTraitSummationByCategory();
-            if (summation.isEmpty()) {
-                sb.append("    None\n");
-            } else {
-                for (Map.Entry<String, Integer> entry : summation.entrySet()) {
-                    String category = entry.getKey();
-                    int total = entry.getValue();
-                    String sign = total > 0 ? "+" : "";
-                    sb.append("    ").append(category).append(": ").append(sign).append(total).append("\n");
-                }
+    public static void writeAll(Collection<Faction> factions, Writer out) throws IOException {
+        boolean first = true;
+        for (Faction faction : factions) {
+            if (!first) {
+                out.write('\n');
             }
+            write(faction, out);
+            first = false;
         }
-        sb.append("\n");
+    }
 
-        sb.append("Resources:\n");
+    public static void write(Faction faction, Writer out) throws IOException {
+        out.append(faction.getName()).append('\n');
+        out.append("Population=").append(String.valueOf(faction.getPopulation())).append('\n');
+        out.append("ActionPoints=").append(String.valueOf(faction.getActionPoints())).append('\n');
+        out.append("NextIds=").append(String.valueOf(faction.getNextArmyId())).append(',')
+                .append(String.valueOf(faction.getNextBuildingId())).append('\n');
+        out.write('\n');
+
+        writeTraits(faction.getTraits(), out);
+        out.write('\n');
+
+        out.write("Resources:\n");
         Resources resources = faction.getResources();
-        sb.append("  food=").append(resources.getFood()).append("\n");
-        sb.append("  wood=").append(resources.getWood()).append("\n");
-        sb.append("  stone=").append(resources.getStone()).append("\n");
-        sb.append("\n");
+        for (int i = 0; i < ResourceType.count(); i++) {
+            out.append("  ").append(ResourceType.nameOf(i)).append('=').append(String.valueOf(resources.get(i))).append('\n');
+        }
+        out.write('\n');
 
-        sb.append("Armies:\n");
+        out.write("Armies:\n");
         if (faction.getArmies().isEmpty()) {
-            sb.append("  None\n");
+            out.write("  None\n");
         } else {
             for (Army army : faction.getArmies().values()) {
-                sb.append("  ").append(army.getName()).append(": ")
-                        .append(army.getPopulation()).append(" soldiers, ")
-                        .append(army.getMight()).append(" might, ")
-                        .append(army.getState()).append("\n");
-            }
-        }
-        sb.append("\n");
-
-        sb.append("Buildings:\n");
-        if (!faction.getBuildings().isEmpty()) {
-            Map<String, Integer> buildingCounts = new HashMap<>();
-            for (Building building : faction.getBuildings().values()) {
-                String type = building.getType();
-                buildingCounts.put(type, buildingCounts.getOrDefault(type, 0) + 1);
-            }
-            StringBuilder buildingsLine = new StringBuilder();
-            for (Map.Entry<String, Integer> entry : buildingCounts.entrySet()) {
-                if (buildingsLine.length() > 0) {
-                    buildingsLine.append(", ");
+                out.append("  ").append(army.getName()).append(" #").append(String.valueOf(army.getId())).append(": ")
+                        .append(String.valueOf(army.getPopulation())).append(" soldiers, ")
+                        .append(String.valueOf(army.getMight())).append(" might, ")
+                        .append(String.valueOf(army.getState()));
+                if (army.getTargetFaction() != null) {
+                    out.append(", target ").append(army.getTargetFaction())
+                            .append(", ").append(String.valueOf(army.getTravelWeeksRemaining())).append(" weeks");
                 }
-                buildingsLine.append(entry.getKey()).append(" ").append(entry.getValue());
+                out.write('\n');
             }
-            sb.append("  ").append(buildingsLine).append("\n");
+        }
+        out.write('\n');
+
+        out.write("Buildings:\n");
+        boolean anyBuildings = false;
+        for (BuildingStore.Entry entry : faction.getBuildings().getEntries()) {
+            if (entry.getCount() == 0) continue;
+            out.write(anyBuildings ? ", " : "  ");
+            out.append(entry.getType()).append(' ').append(String.valueOf(entry.getCount()));
+            anyBuildings = true;
+        }
+        if (anyBuildings) {
+            out.write('\n');
         } else {
-            sb.append("  None\n");
+            out.write(faction.getBuildings().isEmpty() ? "  None\n" : "  \n");
         }
-        sb.append("\n");
+        out.write('\n');
 
-        sb.append("Constructing:\n");
-        if (faction.getBuildingQueue().isEmpty()) {
-            sb.append("  None\n");
+        out.write("Constructing:\n");
+        if (faction.getBuildingQueueView().isEmpty()) {
+            out.write("  None\n");
         } else {
-            Map<String, Integer> constructingCounts = new HashMap<>();
-            Map<String, Integer> weeksRemaining = new HashMap<>();
-            for (Building building : faction.getBuildingQueue()) {
-                String type = building.getType();
-                constructingCounts.put(type, constructingCounts.getOrDefault(type, 0) + 1);
-                weeksRemaining.put(type, building.getConstructionWeeksRemaining());
-            }
-            StringBuilder constructingLine = new StringBuilder();
-            for (Map.Entry<String, Integer> entry : constructingCounts.entrySet()) {
-                if (constructingLine.length() > 0) {
-                    constructingLine.append(", ");
-                }
-                constructingLine.append(entry.getKey()).append(" ").append(entry.getValue())
-                        .append(" (").append(weeksRemaining.get(entry.getKey())).append(" weeks)");
+            boolean first = true;
+            for (Building building : faction.getBuildingQueueView()) {
+                out.write(first ? "  " : ", ");
+                out.append(building.getType()).append(" #").append(String.valueOf(building.getId()))
+                        .append(" (").append(String.valueOf(building.getConstructionWeeksRemaining())).append(" weeks)");
+                first = false;
             }
-            sb.append("  ").append(constructingLine).append("\n");
+            out.write('\n');
         }
-        sb.append("\n");
+        out.write('\n');
 
-        sb.append("Research:\n");
+        out.write("Research:\n");
         Research research = faction.getResearch();
-        if (research.getAllResults().isEmpty()) {
-            sb.append("  None\n");
+        if (research.getResultsView().isEmpty()) {
+            out.write("  None\n");
         } else {
-            for (Map.Entry<String, ResearchResult> entry : research.getAllResults().entrySet()) {
-                sb.append("  ").append(entry.getKey()).append(": ").append(entry.getValue().getDisplayName()).append("\n");
+            for (Map.Entry<String, ResearchResult> entry : research.getResultsView().entrySet()) {
+                out.append("  ").append(entry.getKey()).append(": ").append(entry.getValue().getDisplayName()).append('\n');
             }
         }
-        sb.append("\n");
+        out.write('\n');
 
-        sb.append("Features:\n");
-        String features = faction.getFeatures();
-        if (features.isEmpty()) {
-            sb.append("  [Space for manual faction features and quirks]\n");
-        } else {
-            for (String line : features.split("\n")) {
-                sb.append("  ").append(line).append("\n");
+        out.write("Features:\n");
+        writeFeatures(faction.getFeatures(), out);
+    }
+
+    private static void writeTraits(Traits traits, Writer out) throws IOException {
+        out.write("Traits:\n");
+        if (traits.getTraitsView().isEmpty()) {
+            out.write("  None\n");
+            return;
+        }
+
+        for (Map.Entry<String, Integer> entry : traits.getTraitsView().entrySet()) {
+            String traitName = entry.getKey();
+            String value = String.valueOf(entry.getValue());
+            Traits.TraitDefinition def = traits.getTraitDefinition(traitName);
+            if (def != null) {
+                out.append("  ").append(def.displayName).append(": ").append(def.description)
+                        .append(" [").append(traitName).append('=').append(value).append("]\n");
+            } else {
+                out.append("  ").append(traitName).append(": ").append(value).append('\n');
             }
         }
 
-        file.getParentFile().mkdirs();
-        try (FileWriter writer = new FileWriter(file)) {
-            writer.write(sb.toString());
+        out.write("\n  Trait Summation:\n");
+        Map<String, Integer> summation = traits.getTraitSummationView();
+        if (summation.isEmpty()) {
+            out.write("    None\n");
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : summation.entrySet()) {
+            int total = entry.getValue();
+            out.append("    ").append(entry.getKey()).append(": ").append(total > 0 ? "+" : "")
+                    .append(String.valueOf(total)).append('\n');
+        }
+    }
+
+    private static void writeFeatures(String features, Writer out) throws IOException {
+        if (features.isEmpty()) {
+            out.write("  [Space for manual faction features and quirks]\n");
+            return;
+        }
+
+        int end = features.length();
+        while (end > 0 && features.charAt(end - 1) == '\n') {
+            end--;
+        }
+        int start = 0;
+        while (start < end) {
+            int lineEnd = features.indexOf('\n', start);
+            if (lineEnd < 0 || lineEnd > end) {
+                lineEnd = end;
+            }
+            out.write("  ");
+            out.write(features, start, lineEnd - start);
+            out.write('\n');
+            start = lineEnd + 1;
         }
     }
 
@@ -141,214 +179,448 @@ public class FactionStateFormatter {
             return;
         }
 
-        List<String> lines = Files.readAllLines(file.toPath());
-        Map<String, String> values = new HashMap<>();
+        CharBuffer text = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+        int limit = text.length();
+        int[] values = new int[2 * (VALUE_RESOURCES + ResourceType.count())];
+        Arrays.fill(values, -1);
+        int[] traitLines = new int[16];
+        int traitCount = 0;
+        int[] armyLines = new int[16];
+        int armyCount = 0;
+        int[] buildingsLine = {-1, -1};
+        int[] constructingLine = {-1, -1};
         StringBuilder featuresBuilder = new StringBuilder();
-        String buildingsLine = "";
-        String constructingLine = "";
-        String traitsLine = "";
-        boolean inFeaturesSection = false;
-        boolean inBuildingsSection = false;
-        boolean inConstructingSection = false;
-        boolean inTraitsSection = false;
-
-        for (String line : lines) {
-            String trimmed = line.trim();
-            
-            if (trimmed.isEmpty() || trimmed.startsWith("[") || trimmed.startsWith("--")) {
-                if (inFeaturesSection && !trimmed.isEmpty()) {
-                    featuresBuilder.append(trimmed).append("\n");
+        int section = SECTION_NONE;
+
+        int next = 0;
+        while (next < limit) {
+            int lineEnd = lineEnd(text, next, limit);
+            int from = trimStart(text, next, lineEnd);
+            int to = trimEnd(text, from, lineEnd);
+            next = nextLine(text, lineEnd, limit);
+
+            if (from == to) {
+                continue;
+            }
+            if (text.charAt(from) == '[' || startsWith(text, from, to, "--")) {
+                if (section == SECTION_FEATURES) {
+                    featuresBuilder.append(text, from, to).append('\n');
+                }
+                continue;
+            }
+            if (isHeader(text, from, to)) {
+                section = SECTION_NONE;
+                for (int s = 1; s < SECTION_HEADERS.length; s++) {
+                    if (equals(text, from, to, SECTION_HEADERS[s])) {
+                        section = s;
+                    }
                 }
                 continue;
             }
 
-            if (trimmed.equals("Traits:")) {
-                inTraitsSection = true;
-                inBuildingsSection = false;
-                inConstructingSection = false;
-                inFeaturesSection = false;
+            if (section == SECTION_FEATURES) {
+                featuresBuilder.append(text, from, to).append('\n');
+            } else if (section == SECTION_NONE) {
+                int separator = indexOf(text, from, to, '=');
+                if (separator >= 0) {
+                    recordValue(text, from, separator, to, values);
+                }
+            } else if (!equals(text, from, to, "None")) {
+                if (section == SECTION_TRAITS) {
+                    traitLines = addRange(traitLines, traitCount++, from, to);
+                } else if (section == SECTION_ARMIES) {
+                    armyLines = addRange(armyLines, armyCount++, from, to);
+                } else if (section == SECTION_BUILDINGS) {
+                    buildingsLine[0] = from;
+                    buildingsLine[1] = to;
+                } else {
+                    constructingLine[0] = from;
+                    constructingLine[1] = to;
+                }
+            }
+        }
+
+        faction.clearLoadedState();
+
+        if (values[2 * VALUE_POPULATION] >= 0) {
+            faction.population = Long.parseLong(text, values[2 * VALUE_POPULATION], values[2 * VALUE_POPULATION + 1], 10);
+        }
+
+        for (int i = 0; i < ResourceType.count(); i++) {
+            int slot = 2 * (VALUE_RESOURCES + i);
+            if (values[slot] >= 0) {
+                faction.getResources().set(i, Long.parseLong(text, values[slot], values[slot + 1], 10));
+            }
+        }
+
+        if (values[2 * VALUE_NEXT_IDS] >= 0) {
+            int[] nextIds = new int[4];
+            if (split(text, values[2 * VALUE_NEXT_IDS], values[2 * VALUE_NEXT_IDS + 1], nextIds) == 2) {
+                faction.restoreNextIds(parseInt(text, nextIds[0], nextIds[1]), parseInt(text, nextIds[2], nextIds[3]));
+            }
+        }
+
+        for (int i = 0; i < traitCount; i++) {
+            loadTraits(faction, text, traitLines[2 * i], traitLines[2 * i + 1]);
+        }
+        for (int i = 0; i < armyCount; i++) {
+            loadArmy(faction, text, armyLines[2 * i], armyLines[2 * i + 1]);
+        }
+        if (buildingsLine[0] >= 0) {
+            loadBuildings(faction, text, buildingsLine[0], buildingsLine[1]);
+        }
+        if (constructingLine[0] >= 0) {
+            loadConstructingBuildings(faction, text, constructingLine[0], constructingLine[1]);
+        }
+
+        String features = featuresBuilder.toString().trim();
+        if (!features.isEmpty()) {
+            faction.setFeatures(features);
+        }
+    }
+
+    private static void recordValue(CharSequence text, int from, int separator, int to, int[] values) {
+        int keyEnd = trimEnd(text, from, separator);
+        int slot = -1;
+        if (equalsIgnoreCase(text, from, keyEnd, "population")) {
+            slot = VALUE_POPULATION;
+        } else if (equalsIgnoreCase(text, from, keyEnd, "nextids")) {
+            slot = VALUE_NEXT_IDS;
+        } else {
+            for (int i = 0; i < ResourceType.count() && slot < 0; i++) {
+                if (equalsIgnoreCase(text, from, keyEnd, ResourceType.nameOf(i))) {
+                    slot = VALUE_RESOURCES + i;
+                }
+            }
+        }
+        if (slot >= 0) {
+            values[2 * slot] = trimStart(text, separator + 1, to);
+            values[2 * slot + 1] = to;
+        }
+    }
+
+    private static void loadBuildings(Faction faction, CharSequence text, int from, int to) {
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to && text.charAt(i) != ',') {
                 continue;
             }
+            int entryStart = trimStart(text, start, i);
+            int entryEnd = trimEnd(text, entryStart, i);
+            start = i + 1;
 
-            if (trimmed.equals("Buildings:")) {
-                inTraitsSection = false;
-                inBuildingsSection = true;
-                inConstructingSection = false;
-                inFeaturesSection = false;
+            int typeEnd = tokenEnd(text, entryStart, entryEnd);
+            if (typeEnd == entryEnd) {
                 continue;
             }
+            int countStart = skipSpace(text, typeEnd, entryEnd);
+            int count = parseInt(text, countStart, tokenEnd(text, countStart, entryEnd));
+
+            BuildingDefinition def = BuildingDefinition.get(text.subSequence(entryStart, typeEnd).toString());
+            if (def != null) {
+                faction.getBuildings().add(def, count);
+            }
+        }
+    }
+
+    private static void loadArmy(Faction faction, CharSequence text, int from, int to) {
+        int colon = indexOf(text, from, to, ':');
+        if (colon <= from) {
+            return;
+        }
 
-            if (trimmed.equals("Constructing:")) {
-                inTraitsSection = false;
-                inBuildingsSection = false;
-                inConstructingSection = true;
-                inFeaturesSection = false;
+        int headerEnd = trimEnd(text, from, colon);
+        int id = 0;
+        int hash = lastIndexOf(text, from, headerEnd, " #");
+        if (hash > from) {
+            id = parseInt(text, trimStart(text, hash + 2, headerEnd), headerEnd);
+            headerEnd = trimEnd(text, from, hash);
+        }
+
+        int[] parts = new int[10];
+        int count = split(text, colon + 1, to, parts);
+        if (count < 3) {
+            return;
+        }
+
+        long population = Long.parseLong(text, parts[0], tokenEnd(text, parts[0], parts[1]), 10);
+        long might = Long.parseLong(text, parts[2], tokenEnd(text, parts[2], parts[3]), 10);
+        Army.ArmyState state = Army.ArmyState.valueOf(text.subSequence(parts[4], parts[5]).toString());
+        String target = null;
+        int weeks = 0;
+        if (count >= 5) {
+            int targetStart = parts[6];
+            if (startsWith(text, targetStart, parts[7], "target")) {
+                int afterKeyword = skipSpace(text, targetStart + 6, parts[7]);
+                if (afterKeyword > targetStart + 6) {
+                    targetStart = afterKeyword;
+                }
+            }
+            target = text.subSequence(targetStart, parts[7]).toString();
+            weeks = parseInt(text, parts[8], tokenEnd(text, parts[8], parts[9]));
+        }
+
+        Army army = new Army(text.subSequence(from, headerEnd).toString(), population);
+        army.restoreState(Saturating.toInt(Saturating.subtract(might, population)), state, target, weeks);
+        faction.restoreArmy(army, id);
+    }
+
+    private static void loadConstructingBuildings(Faction faction, CharSequence text, int from, int to) {
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to && (text.charAt(i) != ',' || insideParens(text, i + 1, to))) {
                 continue;
             }
+            int entryStart = trimStart(text, start, i);
+            int entryEnd = trimEnd(text, entryStart, i);
+            start = i + 1;
 
-            if (trimmed.equals("Features:")) {
-                inTraitsSection = false;
-                inBuildingsSection = false;
-                inConstructingSection = false;
-                inFeaturesSection = true;
+            int typeEnd = tokenEnd(text, entryStart, entryEnd);
+            if (typeEnd == entryEnd) {
                 continue;
             }
+            int countStart = skipSpace(text, typeEnd, entryEnd);
+            int countEnd = tokenEnd(text, countStart, entryEnd);
+            int id = 0;
+            int count;
+            if (text.charAt(countStart) == '#') {
+                id = parseInt(text, countStart + 1, countEnd);
+                count = 1;
+            } else {
+                count = parseInt(text, countStart, countEnd);
+            }
 
-            if (trimmed.matches("^[A-Za-z]+:$")) {
-                inTraitsSection = false;
-                inBuildingsSection = false;
-                inConstructingSection = false;
-                inFeaturesSection = false;
+            int weeksRemaining = 0;
+            int openParen = indexOf(text, entryStart, entryEnd, '(');
+            int closeParen = indexOf(text, entryStart, entryEnd, ')');
+            if (openParen >= 0 && closeParen > openParen) {
+                weeksRemaining = parseDigits(text, openParen + 1, closeParen);
             }
 
-            if (inTraitsSection) {
-                if (!trimmed.equals("None")) {
-                    if (!traitsLine.isEmpty()) {
-                        traitsLine += ", ";
-                    }
-                    traitsLine += trimmed;
-                }
-            } else if (inBuildingsSection) {
-                if (!trimmed.equals("None")) {
-                    buildingsLine = trimmed;
-                }
-            } else if (inConstructingSection) {
-                if (!trimmed.equals("None")) {
-                    constructingLine = trimmed;
-                }
-            } else if (inFeaturesSection) {
-                String content = trimmed.replaceFirst("^\\s*", "");
-                if (!content.equals("[Space for manual faction features and quirks]")) {
-                    featuresBuilder.append(content).append("\n");
-                }
-            } else if (trimmed.contains("=")) {
-                String[] parts = trimmed.split("=", 2);
-                if (parts.length == 2) {
-                    String key = parts[0].trim();
-                    String value = parts[1].trim();
-                    values.put(key.toLowerCase(), value);
+            BuildingDefinition def = BuildingDefinition.get(text.subSequence(entryStart, typeEnd).toString());
+            if (def != null) {
+                for (int b = 0; b < count; b++) {
+                    Building building = def.createConstructing(weeksRemaining);
+                    faction.restoreQueuedBuilding(building, id);
                 }
             }
         }
+    }
 
-        if (values.containsKey("population")) {
-            int pop = Integer.parseInt(values.get("population"));
-            faction.population = pop;
+    private static void loadTraits(Faction faction, CharSequence text, int from, int to) {
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to && text.charAt(i) != ',') {
+                continue;
+            }
+            int entryStart = trimStart(text, start, i);
+            int entryEnd = trimEnd(text, entryStart, i);
+            start = i + 1;
+
+            if (indexOf(text, entryStart, entryEnd, "Trait Summation") >= 0) {
+                continue;
+            }
+
+            int bracketStart = indexOf(text, entryStart, entryEnd, '[');
+            int bracketEnd = indexOf(text, entryStart, entryEnd, ']');
+            if (bracketStart < 0 || bracketEnd <= bracketStart) {
+                continue;
+            }
+
+            int separator = indexOf(text, bracketStart + 1, bracketEnd, '=');
+            int valueEnd = bracketEnd;
+            while (valueEnd > separator + 1 && text.charAt(valueEnd - 1) == '=') {
+                valueEnd--;
+            }
+            if (separator < 0 || valueEnd == separator + 1 || indexOf(text, separator + 1, valueEnd, '=') >= 0) {
+                continue;
+            }
+
+            int nameStart = trimStart(text, bracketStart + 1, separator);
+            int valueStart = trimStart(text, separator + 1, valueEnd);
+            try {
+                int value = parseInt(text, valueStart, trimEnd(text, valueStart, valueEnd));
+                faction.setTrait(text.subSequence(nameStart, trimEnd(text, nameStart, separator)).toString(), value);
+            } catch (NumberFormatException e) {
+            }
         }
+    }
 
-        if (values.containsKey("food")) {
-            int food = Integer.parseInt(values.get("food"));
-            faction.getResources().setFood(food);
+    private static int[] addRange(int[] ranges, int index, int from, int to) {
+        if (2 * index + 1 >= ranges.length) {
+            ranges = Arrays.copyOf(ranges, ranges.length * 2);
         }
+        ranges[2 * index] = from;
+        ranges[2 * index + 1] = to;
+        return ranges;
+    }
 
-        if (values.containsKey("wood")) {
-            int wood = Integer.parseInt(values.get("wood"));
-            faction.getResources().setWood(wood);
+    private static int split(CharSequence text, int from, int to, int[] parts) {
+        int fields = 0;
+        int kept = 0;
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to && text.charAt(i) != ',') {
+                continue;
+            }
+            if (2 * fields + 1 < parts.length) {
+                parts[2 * fields] = trimStart(text, start, i);
+                parts[2 * fields + 1] = trimEnd(text, parts[2 * fields], i);
+            }
+            fields++;
+            if (i > start) {
+                kept = fields;
+            }
+            start = i + 1;
         }
+        return fields == 1 ? 1 : kept;
+    }
 
-        if (values.containsKey("stone")) {
-            int stone = Integer.parseInt(values.get("stone"));
-            faction.getResources().setStone(stone);
+    private static boolean insideParens(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == '(') {
+                return false;
+            }
+            if (c == ')') {
+                return true;
+            }
         }
+        return false;
+    }
 
-        loadTraits(faction, traitsLine);
-        loadBuildings(faction, buildingsLine);
-        loadConstructingBuildings(faction, constructingLine);
+    private static int lineEnd(CharSequence text, int from, int limit) {
+        while (from < limit && text.charAt(from) != '\n' && text.charAt(from) != '\r') {
+            from++;
+        }
+        return from;
+    }
 
-        String features = featuresBuilder.toString().trim();
-        if (!features.isEmpty()) {
-            faction.setFeatures(features);
+    private static int nextLine(CharSequence text, int lineEnd, int limit) {
+        if (lineEnd + 1 < limit && text.charAt(lineEnd) == '\r' && text.charAt(lineEnd + 1) == '\n') {
+            return lineEnd + 2;
         }
+        return lineEnd + 1;
     }
 
-    private static void loadBuildings(Faction faction, String buildingsLine) {
-        if (buildingsLine.isEmpty() || buildingsLine.equals("None")) {
-            return;
+    private static boolean isHeader(CharSequence text, int from, int to) {
+        if (to - from < 2 || text.charAt(to - 1) != ':') {
+            return false;
+        }
+        for (int i = from; i < to - 1; i++) {
+            char c = text.charAt(i);
+            if ((c < 'A' || c > 'Z') && (c < 'a' || c > 'z')) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        String[] entries = buildingsLine.split(",");
-        for (String entry : entries) {
-            String[] parts = entry.trim().split("\\s+");
-            if (parts.length >= 2) {
-                String buildingType = parts[0];
-                int count = Integer.parseInt(parts[1]);
-                
-                BuildingDefinition def = BuildingDefinition.get(buildingType);
-                if (def != null) {
-                    for (int i = 0; i < count; i++) {
-                        Building building = def.createCompleted(buildingType);
-                        faction.getBuildings().put(building.getId(), building);
-                    }
+    private static int parseInt(CharSequence text, int from, int to) {
+        return Integer.parseInt(text, from, to, 10);
+    }
+
+    private static int parseDigits(CharSequence text, int from, int to) {
+        long value = 0;
+        boolean found = false;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                found = true;
+                if (value > Integer.MAX_VALUE) {
+                    throw new NumberFormatException("Number out of range: " + text.subSequence(from, to));
                 }
             }
         }
+        return found ? (int) value : 0;
     }
 
-    private static void loadConstructingBuildings(Faction faction, String constructingLine) {
-        if (constructingLine.isEmpty() || constructingLine.equals("None")) {
-            return;
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static int skipSpace(CharSequence text, int from, int to) {
+        while (from < to && isSpace(text.charAt(from))) {
+            from++;
         }
+        return from;
+    }
 
-        String[] entries = constructingLine.split(",(?![^()]*\\))");
-        for (String entry : entries) {
-            entry = entry.trim();
-            String[] parts = entry.split("\\s+");
-            if (parts.length >= 2) {
-                String buildingType = parts[0];
-                int count = Integer.parseInt(parts[1]);
-                
-                int weeksRemaining = 0;
-                int openParen = entry.indexOf('(');
-                int closeParen = entry.indexOf(')');
-                if (openParen >= 0 && closeParen > openParen) {
-                    String weeksPart = entry.substring(openParen + 1, closeParen).trim();
-                    weeksPart = weeksPart.replaceAll("\\D+", "");
-                    if (!weeksPart.isEmpty()) {
-                        weeksRemaining = Integer.parseInt(weeksPart);
-                    }
-                }
-                
-                BuildingDefinition def = BuildingDefinition.get(buildingType);
-                if (def != null) {
-                    for (int i = 0; i < count; i++) {
-                        Building building = def.createConstructing(weeksRemaining);
-                        faction.getBuildingQueue().add(building);
-                    }
-                }
+    private static int tokenEnd(CharSequence text, int from, int to) {
+        while (from < to && !isSpace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimStart(CharSequence text, int from, int to) {
+        while (from < to && text.charAt(from) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(CharSequence text, int from, int to) {
+        while (to > from && text.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private static int indexOf(CharSequence text, int from, int to, char c) {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == c) {
+                return i;
             }
         }
+        return -1;
     }
 
-    private static void loadTraits(Faction faction, String traitsLine) {
-        if (traitsLine.isEmpty() || traitsLine.equals("None")) {
-            return;
+    private static int indexOf(CharSequence text, int from, int to, String value) {
+        for (int i = from; i + value.length() <= to; i++) {
+            if (startsWith(text, i, to, value)) {
+                return i;
+            }
         }
+        return -1;
+    }
 
-        String[] entries = traitsLine.split(",");
-        for (String entry : entries) {
-            entry = entry.trim();
-            
-            if (entry.contains("Trait Summation")) {
-                continue;
+    private static int lastIndexOf(CharSequence text, int from, int to, String value) {
+        for (int i = to - value.length(); i >= from; i--) {
+            if (startsWith(text, i, to, value)) {
+                return i;
             }
-            
-            int bracketStart = entry.indexOf('[');
-            int bracketEnd = entry.indexOf(']');
-            
-            if (bracketStart >= 0 && bracketEnd > bracketStart) {
-                String internalData = entry.substring(bracketStart + 1, bracketEnd);
-                String[] parts = internalData.split("=");
-                if (parts.length == 2) {
-                    String traitName = parts[0].trim();
-                    String traitValue = parts[1].trim();
-                    try {
-                        int value = Integer.parseInt(traitValue);
-                        faction.setTrait(traitName, value);
-                    } catch (NumberFormatException e) {
-                    }
-                }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(CharSequence text, int from, int to, String value) {
+        if (to - from < value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (text.charAt(from + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(CharSequence text, int from, int to, String value) {
+        return to - from == value.length() && startsWith(text, from, to, value);
+    }
+
+    private static boolean equalsIgnoreCase(CharSequence text, int from, int to, String value) {
+        if (to - from != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.toLowerCase(text.charAt(from + i)) != Character.toLowerCase(value.charAt(i))) {
+                return false;
             }
         }
+        return true;
     }
 
 }
@@ -0,0 +1,66 @@
+package core;
+
+import java.util.Collections;
+
+public class FastForward {
+
+    public static void fastForward(FactionRegistry registry, int weeks) {
+        for (Faction faction : registry.getFactionsInOrder()) {
+            fastForward(faction, weeks);
+        }
+    }
+
+    public static int fastForward(Faction faction, int weeks) {
+        int remaining = weeks;
+        while (remaining > 0 && !isSteady(faction)) {
+            faction.processWeek();
+            remaining--;
+        }
+        if (remaining == 0) {
+            return 0;
+        }
+
+        BulkEconomy economy = new BulkEconomy(Collections.singletonList(faction), 1);
+        long cyclePopulation = economy.getPopulation(0);
+        long cycleFood = economy.getStock(ResourceType.FOOD, 0);
+        int power = 1;
+        int period = 0;
+        while (remaining > 0) {
+            economy.runWeek();
+            remaining--;
+            period++;
+
+            long population = economy.getPopulation(0);
+            long food = economy.getStock(ResourceType.FOOD, 0);
+            if (population == cyclePopulation && food == cycleFood) {
+                int stepped = remaining % period;
+                economy.runWeeks(stepped);
+                economy.advanceLinearResources(remaining - stepped);
+                economy.store();
+                return remaining - stepped;
+            }
+            if (period == power) {
+                cyclePopulation = population;
+                cycleFood = food;
+                power *= 2;
+                period = 0;
+            }
+        }
+
+        economy.store();
+        return 0;
+    }
+
+    public static boolean isSteady(Faction faction) {
+        if (!faction.getBuildingQueueView().isEmpty()) {
+            return false;
+        }
+        for (Army army : faction.getArmies().values()) {
+            if (army.getState() == Army.ArmyState.ATTACKING || army.getState() == Army.ArmyState.RETREATING) {
+                return false;
+            }
+        }
+        return BulkEconomy.supports(faction);
+    }
+
+}
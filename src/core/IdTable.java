@@ -0,0 +1,78 @@
+package core;
+
+import java.util.Arrays;
+
+public class IdTable<T> {
+
+    private Object[] slots;
+    private int nextId;
+    private int size;
+
+    public IdTable() {
+        this.slots = new Object[16];
+        this.nextId = 1;
+        this.size = 0;
+    }
+
+    public synchronized int add(T value) {
+        int id = nextId++;
+        store(id, value);
+        return id;
+    }
+
+    public synchronized void put(int id, T value) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Invalid id: " + id);
+        }
+        store(id, value);
+        if (id >= nextId) {
+            nextId = id + 1;
+        }
+    }
+
+    private void store(int id, T value) {
+        if (id >= slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(id + 1, slots.length * 2));
+        }
+        if (slots[id] == null) {
+            size++;
+        }
+        slots[id] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized T get(int id) {
+        return id > 0 && id < slots.length ? (T) slots[id] : null;
+    }
+
+    public synchronized boolean isFree(int id) {
+        return id > 0 && (id >= slots.length || slots[id] == null);
+    }
+
+    public synchronized void remove(int id) {
+        if (id > 0 && id < slots.length && slots[id] != null) {
+            slots[id] = null;
+            size--;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int getNextId() {
+        return nextId;
+    }
+
+    public synchronized void restoreNextId(int id) {
+        int next = Math.max(id, 1);
+        for (int i = nextId - 1; i >= next; i--) {
+            if (slots[i] != null) {
+                next = i + 1;
+                break;
+            }
+        }
+        nextId = next;
+    }
+
+}
@@ -0,0 +1,484 @@
+package core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class MappedWorld {
+
+    public static final int MAGIC = 0x42524D57;
+    public static final int VERSION = 2;
+
+    private static final int PAGE_SIZE = 4096;
+    private static final int HEADER_ACTIVE_BANK = 8;
+    private static final int HEADER_LAYOUT = 12;
+    private static final int BANK_HEADER_SIZE = 16;
+    private static final int CORE_SIZE = 48;
+    private static final int ARMY_FIXED_SIZE = 24;
+    private static final int DEFAULT_NAME_BYTES = 64;
+    private static final int DEFAULT_ARMY_SLOTS = 16;
+    private static final int DEFAULT_EXTENSION_BYTES = 2048;
+    private static final int NO_STATE = -1;
+
+    private final File file;
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] banks;
+    private long[][] bankStamps;
+    private final SnapshotCache cache = new SnapshotCache();
+
+    private List<String> factionNames;
+    private List<String> resourceNames;
+    private List<String> buildingTypes;
+    private int armySlots;
+    private int extensionBytes;
+    private int nameBytes;
+    private int armySize;
+    private int slotSize;
+    private int headerSize;
+
+    private MappedWorld(File file) {
+        this.file = file;
+    }
+
+    public static MappedWorld open(File file, FactionRegistry registry) throws IOException {
+        MappedWorld world = new MappedWorld(file);
+        if (!file.exists() || !world.mapExisting(registry)) {
+            world.create(registry, DEFAULT_ARMY_SLOTS, DEFAULT_EXTENSION_BYTES, DEFAULT_NAME_BYTES);
+            world.install();
+        }
+        return world;
+    }
+
+    private boolean mapExisting(FactionRegistry registry) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < PAGE_SIZE) {
+            close();
+            return false;
+        }
+
+        ByteBuffer probe = channel.map(FileChannel.MapMode.READ_ONLY, 0, PAGE_SIZE);
+        if (probe.getInt(0) != MAGIC || probe.getInt(4) != VERSION) {
+            close();
+            return false;
+        }
+
+        probe.position(HEADER_LAYOUT);
+        headerSize = probe.getInt();
+        int factionCount = probe.getInt();
+        int resourceCount = probe.getInt();
+        int buildingCount = probe.getInt();
+        armySlots = probe.getInt();
+        extensionBytes = probe.getInt();
+        slotSize = probe.getInt();
+        nameBytes = probe.getInt();
+        armySize = ARMY_FIXED_SIZE + nameBytes * 2;
+
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize);
+        header.position(probe.position());
+        factionNames = readNames(header, factionCount);
+        resourceNames = readNames(header, resourceCount);
+        buildingTypes = readNames(header, buildingCount);
+
+        if (!factionNames.equals(namesOf(registry)) || !resourceNames.equals(currentResources())
+                || !buildingTypes.equals(currentBuildingTypes())) {
+            close();
+            return false;
+        }
+
+        mapBanks();
+        return true;
+    }
+
+    private void create(FactionRegistry registry, int armySlots, int extensionBytes, int nameBytes) throws IOException {
+        close();
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+
+        this.factionNames = namesOf(registry);
+        this.resourceNames = currentResources();
+        this.buildingTypes = currentBuildingTypes();
+        this.armySlots = armySlots;
+        this.extensionBytes = extensionBytes;
+        this.nameBytes = nameBytes;
+        this.armySize = ARMY_FIXED_SIZE + nameBytes * 2;
+        long slotBytes = align(CORE_SIZE + resourceNames.size() * 8L + buildingTypes.size() * 4L
+                + 4 + (long) armySlots * armySize + 4 + extensionBytes, 8);
+        if (slotBytes > Integer.MAX_VALUE) {
+            throw new IOException("World too large to map: " + armySlots + " army slots");
+        }
+        this.slotSize = (int) slotBytes;
+
+        SnapshotEncoder directory = new SnapshotEncoder(PAGE_SIZE);
+        directory.writeInt(MAGIC);
+        directory.writeInt(VERSION);
+        directory.writeInt(0);
+        directory.writeInt(0);
+        directory.writeInt(factionNames.size());
+        directory.writeInt(resourceNames.size());
+        directory.writeInt(buildingTypes.size());
+        directory.writeInt(armySlots);
+        directory.writeInt(extensionBytes);
+        directory.writeInt(slotSize);
+        directory.writeInt(nameBytes);
+        writeNames(directory, factionNames);
+        writeNames(directory, resourceNames);
+        writeNames(directory, buildingTypes);
+        this.headerSize = align(directory.position(), PAGE_SIZE);
+        directory.putInt(HEADER_LAYOUT, headerSize);
+
+        File temp = layoutFile();
+        Files.deleteIfExists(temp.toPath());
+        channel = FileChannel.open(temp.toPath(),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize);
+        header.put(directory.toByteBuffer());
+        mapBanks();
+        for (MappedByteBuffer bank : banks) {
+            bank.putInt(0, NO_STATE);
+            bank.force();
+        }
+        header.force();
+    }
+
+    private void install() throws IOException {
+        Files.move(layoutFile().toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            BinarySnapshot.syncDirectory(parent);
+        }
+    }
+
+    private File layoutFile() {
+        return new File(file.getPath() + ".tmp");
+    }
+
+    private void mapBanks() throws IOException {
+        long bankSize = BANK_HEADER_SIZE + (long) slotSize * factionNames.size();
+        if (bankSize > Integer.MAX_VALUE) {
+            throw new IOException("World too large to map: " + factionNames.size() + " factions");
+        }
+        banks = new MappedByteBuffer[2];
+        bankStamps = new long[2][factionNames.size()];
+        for (int b = 0; b < 2; b++) {
+            banks[b] = channel.map(FileChannel.MapMode.READ_WRITE, headerSize + b * bankSize, bankSize);
+        }
+    }
+
+    public boolean hasState() {
+        return getWeek() != NO_STATE;
+    }
+
+    public int getWeek() {
+        return banks[activeBank()].getInt(0);
+    }
+
+    private int activeBank() {
+        return header.getInt(HEADER_ACTIVE_BANK) & 1;
+    }
+
+    public void commit(FactionRegistry registry, int week) throws IOException {
+        if (fits(registry)) {
+            writeBank(registry, week);
+            return;
+        }
+
+        int requiredArmies = 0;
+        int requiredExtension = 0;
+        int requiredName = 0;
+        for (Faction faction : registry.getFactionsInOrder()) {
+            requiredArmies = Math.max(requiredArmies, faction.getArmies().size());
+            requiredExtension = Math.max(requiredExtension, encodeExtension(faction).position());
+            for (Army army : faction.getArmies().values()) {
+                requiredName = Math.max(requiredName, nameLength(army.getName()));
+                requiredName = Math.max(requiredName, nameLength(army.getTargetFaction()));
+            }
+        }
+        create(registry, grow(armySlots, requiredArmies), grow(extensionBytes, requiredExtension),
+                align(grow(nameBytes, requiredName), 8));
+        if (!fits(registry)) {
+            throw new IOException("Mapped world layout does not fit week " + week);
+        }
+        writeBank(registry, week);
+        install();
+    }
+
+    private static int grow(int current, int required) {
+        if (required <= current) {
+            return current;
+        }
+        return (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, current * 2L));
+    }
+
+    private void writeBank(FactionRegistry registry, int week) {
+        int target = activeBank() ^ 1;
+        MappedByteBuffer bank = banks[target];
+        List<Faction> factions = registry.getFactionsInOrder();
+        for (int i = 0; i < factions.size(); i++) {
+            long stamp = cache.refresh(factions.get(i));
+            if (bankStamps[target][i] != stamp) {
+                writeSlot(bank, BANK_HEADER_SIZE + i * slotSize, factions.get(i));
+                bankStamps[target][i] = stamp;
+            }
+        }
+        bank.putInt(0, week);
+        bank.force();
+
+        header.putInt(HEADER_ACTIVE_BANK, target);
+        header.force();
+    }
+
+    private boolean fits(FactionRegistry registry) {
+        if (!factionNames.equals(namesOf(registry)) || !resourceNames.equals(currentResources())
+                || !buildingTypes.equals(currentBuildingTypes())) {
+            return false;
+        }
+        for (Faction faction : registry.getFactionsInOrder()) {
+            if (faction.getArmies().size() > armySlots) {
+                return false;
+            }
+            for (Army army : faction.getArmies().values()) {
+                if (nameLength(army.getName()) > nameBytes || nameLength(army.getTargetFaction()) > nameBytes) {
+                    return false;
+                }
+            }
+            if (encodeExtension(faction).position() > extensionBytes) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int restore(FactionRegistry registry) throws IOException {
+        if (!hasState()) {
+            throw new IOException("Mapped world has no committed week");
+        }
+        if (!factionNames.equals(namesOf(registry))) {
+            throw new IOException("Mapped world was written for different factions");
+        }
+
+        MappedByteBuffer bank = banks[activeBank()];
+        List<Faction> factions = registry.getFactionsInOrder();
+        for (Faction faction : factions) {
+            faction.clearLoadedState();
+        }
+        for (int i = 0; i < factions.size(); i++) {
+            readSlot(bank, BANK_HEADER_SIZE + i * slotSize, factions.get(i));
+        }
+        return bank.getInt(0);
+    }
+
+    private void writeSlot(ByteBuffer bank, int offset, Faction faction) {
+        ByteBuffer slot = bank.duplicate();
+        slot.position(offset);
+        slot.putLong(faction.population);
+        slot.putLong(faction.might);
+        slot.putInt(faction.actionPoints);
+        slot.putInt(faction.usedActionPoints);
+        slot.putInt(faction.maxConcurrentBuildings);
+        slot.putInt(faction.armyCounter);
+        slot.putInt(faction.getNextArmyId());
+        slot.putInt(faction.getNextBuildingId());
+        slot.putDouble(faction.populationSurplusModifier);
+
+        for (int r = 0; r < resourceNames.size(); r++) {
+            slot.putLong(faction.resources.get(r));
+        }
+        for (String type : buildingTypes) {
+            slot.putInt(faction.buildings.count(type));
+        }
+
+        slot.putInt(faction.getArmies().size());
+        int armyBase = slot.position();
+        int index = 0;
+        for (Army army : faction.getArmies().values()) {
+            slot.position(armyBase + index * armySize);
+            slot.putInt(army.getId());
+            slot.putLong(army.getPopulation());
+            slot.putInt(army.getMightModifier());
+            slot.putInt(army.getState().ordinal());
+            slot.putInt(army.getTravelWeeksRemaining());
+            putName(slot, army.getName(), nameBytes);
+            putName(slot, army.getTargetFaction(), nameBytes);
+            index++;
+        }
+
+        slot.position(armyBase + armySlots * armySize);
+        SnapshotEncoder extension = encodeExtension(faction);
+        slot.putInt(extension.position());
+        slot.put(extension.toByteBuffer());
+    }
+
+    private void readSlot(ByteBuffer bank, int offset, Faction faction) throws IOException {
+        ByteBuffer slot = bank.duplicate();
+        slot.position(offset);
+        faction.population = slot.getLong();
+        faction.might = slot.getLong();
+        faction.actionPoints = slot.getInt();
+        faction.usedActionPoints = slot.getInt();
+        faction.maxConcurrentBuildings = slot.getInt();
+        faction.armyCounter = slot.getInt();
+        int nextArmyId = slot.getInt();
+        int nextBuildingId = slot.getInt();
+        faction.populationSurplusModifier = slot.getDouble();
+
+        for (int r = 0; r < resourceNames.size(); r++) {
+            faction.resources.set(r, slot.getLong());
+        }
+        for (String type : buildingTypes) {
+            faction.buildings.add(BuildingDefinition.get(type), slot.getInt());
+        }
+
+        int armyCount = slot.getInt();
+        int armyBase = slot.position();
+        Army.ArmyState[] states = Army.ArmyState.values();
+        for (int a = 0; a < armyCount; a++) {
+            slot.position(armyBase + a * armySize);
+            int id = slot.getInt();
+            long population = slot.getLong();
+            int mightModifier = slot.getInt();
+            int state = slot.getInt();
+            int weeks = slot.getInt();
+            String name = getName(slot, nameBytes);
+            String target = getName(slot, nameBytes);
+            if (state < 0 || state >= states.length) {
+                throw new IOException("Unknown army state in mapped world: " + state);
+            }
+            Army army = new Army(name, population);
+            army.restoreState(mightModifier, states[state], target, weeks);
+            faction.restoreArmy(army, id);
+        }
+        faction.restoreNextIds(nextArmyId, nextBuildingId);
+
+        slot.position(armyBase + armySlots * armySize);
+        int length = slot.getInt();
+        if (length < 0 || length > extensionBytes) {
+            throw new IOException("Corrupt extension block for " + faction.getName());
+        }
+        ByteBuffer extension = slot.slice();
+        extension.limit(length);
+        decodeExtension(faction, new SnapshotDecoder(extension));
+    }
+
+    private static SnapshotEncoder encodeExtension(Faction faction) {
+        SnapshotEncoder out = new SnapshotEncoder(256);
+        SnapshotEncoder record = new SnapshotEncoder(256);
+        for (int section : new int[]{BinarySnapshot.SECTION_TRAITS, BinarySnapshot.SECTION_QUEUE, BinarySnapshot.SECTION_RESEARCH}) {
+            record.reset();
+            BinarySnapshot.encodeRecord(section, faction, record);
+            out.writeVarInt(record.position());
+            out.writeEncoded(record);
+        }
+        out.writeString(faction.getFeatures());
+        return out;
+    }
+
+    private static void decodeExtension(Faction faction, SnapshotDecoder in) throws IOException {
+        for (int section : new int[]{BinarySnapshot.SECTION_TRAITS, BinarySnapshot.SECTION_QUEUE, BinarySnapshot.SECTION_RESEARCH}) {
+            BinarySnapshot.decodeRecord(section, faction, in.readRecord(), new int[0]);
+        }
+        faction.setFeatures(in.readString());
+    }
+
+    private static void putName(ByteBuffer slot, String value, int width) {
+        int start = slot.position();
+        if (value == null) {
+            slot.putInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (4 + bytes.length > width) {
+                throw new IllegalStateException("Name does not fit mapped slot: " + value);
+            }
+            slot.putInt(bytes.length);
+            slot.put(bytes);
+        }
+        slot.position(start + width);
+    }
+
+    private static String getName(ByteBuffer slot, int width) throws IOException {
+        int start = slot.position();
+        int length = slot.getInt();
+        String value = null;
+        if (length > width - 4) {
+            throw new IOException("Corrupt name in mapped world");
+        }
+        if (length >= 0) {
+            byte[] bytes = new byte[length];
+            slot.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        slot.position(start + width);
+        return value;
+    }
+
+    private static int nameLength(String value) {
+        return value == null ? 4 : 4 + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static List<String> namesOf(FactionRegistry registry) {
+        List<String> names = new ArrayList<>();
+        for (Faction faction : registry.getFactionsInOrder()) {
+            names.add(faction.getName());
+        }
+        return names;
+    }
+
+    private static List<String> currentResources() {
+        List<String> names = new ArrayList<>();
+        for (int r = 0; r < ResourceType.count(); r++) {
+            names.add(ResourceType.nameOf(r));
+        }
+        return names;
+    }
+
+    private static List<String> currentBuildingTypes() {
+        List<String> types = new ArrayList<>(BuildingDefinition.BUILDINGS.keySet());
+        Collections.sort(types);
+        return types;
+    }
+
+    private static void writeNames(SnapshotEncoder out, List<String> names) {
+        for (String name : names) {
+            out.writeString(name);
+        }
+    }
+
+    private static List<String> readNames(ByteBuffer in, int count) throws IOException {
+        SnapshotDecoder decoder = new SnapshotDecoder(in);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            names.add(decoder.readString());
+        }
+        return names;
+    }
+
+    private static int align(int value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+
+    private static long align(long value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+
+    public void close() throws IOException {
+        header = null;
+        banks = null;
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+}
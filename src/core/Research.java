@@ -1,5 +1,6 @@
 package core;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
@@ -8,7 +9,13 @@ public class Research {
 
     private Map<String, Integer> progress;
     private Map<String, ResearchResult> results;
-    private static final Random random = new Random();
+    private Map<String, Integer> progressView;
+    private Map<String, ResearchResult> resultsView;
+    private Map<String, Integer> statModifiers;
+    private Map<String, Integer> modifiersView;
+    private DerivedStats stats;
+    private long version;
+    private final Random random = new Random();
     private static final int BASE_SUCCESS_CHANCE = 50;
     private static final int BASE_BREAKTHROUGH_CHANCE = 5;
     private static final int ADDITIVE_MODIFIER = 1;
@@ -17,10 +24,32 @@ public class Research {
     public Research() {
         this.progress = new HashMap<>();
         this.results = new HashMap<>();
+        this.progressView = Collections.unmodifiableMap(progress);
+        this.resultsView = Collections.unmodifiableMap(results);
+        this.statModifiers = new HashMap<>();
+        this.modifiersView = Collections.unmodifiableMap(statModifiers);
+    }
+
+    public void attachStats(DerivedStats stats) {
+        this.stats = stats;
+        stats.putSource("research", statModifiers);
+    }
+
+    public void addModifier(String statName, int value) {
+        statModifiers.put(statName, statModifiers.getOrDefault(statName, 0) + value);
+        version = StateVersion.next();
+        if (stats != null) {
+            stats.invalidate();
+        }
+    }
+
+    public int getModifier(String statName) {
+        return statModifiers.getOrDefault(statName, 0);
     }
 
     public void addProgress(String field, int amount) {
         progress.put(field, progress.getOrDefault(field, 0) + amount);
+        version = StateVersion.next();
     }
 
     public int getProgress(String field) {
@@ -29,6 +58,7 @@ public class Research {
 
     public void recordResult(String field, ResearchResult result) {
         results.put(field, result);
+        version = StateVersion.next();
     }
 
     public ResearchResult getLastResult(String field) {
@@ -43,6 +73,39 @@ public class Research {
         return new HashMap<>(results);
     }
 
+    public Map<String, Integer> getProgressView() {
+        return progressView;
+    }
+
+    public Map<String, ResearchResult> getResultsView() {
+        return resultsView;
+    }
+
+    public Map<String, Integer> getModifiersView() {
+        return modifiersView;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void reseed(long seed) {
+        random.setSeed(seed);
+    }
+
+    void restore(Map<String, Integer> progress, Map<String, ResearchResult> results, Map<String, Integer> modifiers) {
+        this.progress.clear();
+        this.progress.putAll(progress);
+        this.results.clear();
+        this.results.putAll(results);
+        statModifiers.clear();
+        statModifiers.putAll(modifiers);
+        version = StateVersion.next();
+        if (stats != null) {
+            stats.invalidate();
+        }
+    }
+
     public ResearchResult calculateOutcome(int baseChance, int additiveModifier, int multiplicativeModifier) {
         int successChance = baseChance + (additiveModifier * multiplicativeModifier);
         successChance = Math.max(0, Math.min(100, successChance));
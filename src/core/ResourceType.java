@@ -0,0 +1,63 @@
+package core;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class ResourceType {
+
+    private static final Map<String, Integer> INDEX = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[0];
+    private static volatile String[] productionTraitKeys = new String[0];
+    private static volatile String[] consumptionTraitKeys = new String[0];
+
+    public static final int FOOD = register("food");
+    public static final int WOOD = register("wood");
+    public static final int STONE = register("stone");
+
+    private ResourceType() {
+    }
+
+    public static synchronized int register(String name) {
+        Integer existing = INDEX.get(name);
+        if (existing != null) {
+            return existing;
+        }
+
+        int index = names.length;
+        String[] newNames = Arrays.copyOf(names, index + 1);
+        String[] newProductionKeys = Arrays.copyOf(productionTraitKeys, index + 1);
+        String[] newConsumptionKeys = Arrays.copyOf(consumptionTraitKeys, index + 1);
+        newNames[index] = name;
+        newProductionKeys[index] = "resourceProduction_" + name;
+        newConsumptionKeys[index] = "resourceConsumption_" + name;
+
+        productionTraitKeys = newProductionKeys;
+        consumptionTraitKeys = newConsumptionKeys;
+        names = newNames;
+        INDEX.put(name, index);
+        return index;
+    }
+
+    public static int indexOf(String name) {
+        Integer index = INDEX.get(name);
+        return index != null ? index : -1;
+    }
+
+    public static String nameOf(int index) {
+        return names[index];
+    }
+
+    public static int count() {
+        return names.length;
+    }
+
+    public static String productionTraitKey(int index) {
+        return productionTraitKeys[index];
+    }
+
+    public static String consumptionTraitKey(int index) {
+        return consumptionTraitKeys[index];
+    }
+
+}
@@ -0,0 +1,76 @@
+package core;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ResourceVector {
+
+    private long[] amounts;
+    private boolean[] defined;
+
+    public ResourceVector() {
+        this.amounts = new long[ResourceType.count()];
+        this.defined = new boolean[amounts.length];
+    }
+
+    public ResourceVector(ResourceVector other) {
+        this.amounts = Arrays.copyOf(other.amounts, other.amounts.length);
+        this.defined = Arrays.copyOf(other.defined, other.defined.length);
+    }
+
+    public long get(int index) {
+        return index < amounts.length ? amounts[index] : 0;
+    }
+
+    public void set(int index, long amount) {
+        ensureCapacity(index);
+        amounts[index] = amount;
+        defined[index] = true;
+    }
+
+    public void set(String resourceType, long amount) {
+        set(ResourceType.register(resourceType), amount);
+    }
+
+    public boolean isDefined(int index) {
+        return index < defined.length && defined[index];
+    }
+
+    public int size() {
+        return amounts.length;
+    }
+
+    public boolean isEmpty() {
+        for (boolean isDefined : defined) {
+            if (isDefined) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Map<String, Long> toMap() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (int i = 0; i < amounts.length; i++) {
+            if (defined[i]) {
+                map.put(ResourceType.nameOf(i), amounts[i]);
+            }
+        }
+        return map;
+    }
+
+    private void ensureCapacity(int index) {
+        if (index >= amounts.length) {
+            int length = Math.max(index + 1, ResourceType.count());
+            amounts = Arrays.copyOf(amounts, length);
+            defined = Arrays.copyOf(defined, length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+}
@@ -5,61 +5,112 @@ import java.util.Map;
 
 public class Resources {
 
-    private Map<String, Integer> resources;
+    private ResourceVector resources;
+    private long version;
 
     public Resources() {
-        this.resources = new HashMap<>();
-        this.resources.put("food", 0);
-        this.resources.put("wood", 0);
-        this.resources.put("stone", 0);
+        this.resources = new ResourceVector();
+        this.resources.set(ResourceType.FOOD, 0);
+        this.resources.set(ResourceType.WOOD, 0);
+        this.resources.set(ResourceType.STONE, 0);
     }
 
-    public int get(String resourceType) {
-        return resources.getOrDefault(resourceType, 0);
+    public long get(int resourceIndex) {
+        return resources.get(resourceIndex);
     }
 
-    public void set(String resourceType, int amount) {
-        resources.put(resourceType, Math.max(0, amount));
+    public void set(int resourceIndex, long amount) {
+        long clamped = Math.max(0, amount);
+        if (resources.get(resourceIndex) != clamped || !resources.isDefined(resourceIndex)) {
+            resources.set(resourceIndex, clamped);
+            version = StateVersion.next();
+        }
     }
 
-    public void add(String resourceType, int amount) {
-        set(resourceType, get(resourceType) + amount);
+    public long getVersion() {
+        return version;
     }
 
-    public void subtract(String resourceType, int amount) {
-        set(resourceType, get(resourceType) - amount);
+    public void add(int resourceIndex, long amount) {
+        set(resourceIndex, Saturating.add(get(resourceIndex), amount));
     }
 
-    public boolean hasResources(String resourceType, int amount) {
+    public void subtract(int resourceIndex, long amount) {
+        set(resourceIndex, Saturating.subtract(get(resourceIndex), amount));
+    }
+
+    public long get(String resourceType) {
+        int index = ResourceType.indexOf(resourceType);
+        return index >= 0 ? get(index) : 0;
+    }
+
+    public void set(String resourceType, long amount) {
+        set(ResourceType.register(resourceType), amount);
+    }
+
+    public void add(String resourceType, long amount) {
+        add(ResourceType.register(resourceType), amount);
+    }
+
+    public void subtract(String resourceType, long amount) {
+        subtract(ResourceType.register(resourceType), amount);
+    }
+
+    public boolean hasResources(String resourceType, long amount) {
         return get(resourceType) >= amount;
     }
 
-    public int getFood() {
-        return get("food");
+    public void add(ResourceVector amounts) {
+        for (int i = 0; i < amounts.size(); i++) {
+            if (amounts.isDefined(i)) {
+                add(i, amounts.get(i));
+            }
+        }
+    }
+
+    public void subtract(ResourceVector amounts) {
+        for (int i = 0; i < amounts.size(); i++) {
+            if (amounts.isDefined(i)) {
+                subtract(i, amounts.get(i));
+            }
+        }
+    }
+
+    public boolean canAfford(ResourceVector cost) {
+        for (int i = 0; i < cost.size(); i++) {
+            if (cost.isDefined(i) && get(i) < cost.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getFood() {
+        return get(ResourceType.FOOD);
     }
 
-    public void setFood(int amount) {
-        set("food", amount);
+    public void setFood(long amount) {
+        set(ResourceType.FOOD, amount);
     }
 
-    public int getWood() {
-        return get("wood");
+    public long getWood() {
+        return get(ResourceType.WOOD);
     }
 
-    public void setWood(int amount) {
-        set("wood", amount);
+    public void setWood(long amount) {
+        set(ResourceType.WOOD, amount);
     }
 
-    public int getStone() {
-        return get("stone");
+    public long getStone() {
+        return get(ResourceType.STONE);
     }
 
-    public void setStone(int amount) {
-        set("stone", amount);
+    public void setStone(long amount) {
+        set(ResourceType.STONE, amount);
     }
 
-    public Map<String, Integer> getAll() {
-        return new HashMap<>(resources);
+    public Map<String, Long> getAll() {
+        return new HashMap<>(resources.toMap());
     }
 
     @Override
@@ -0,0 +1,37 @@
+package core;
+
+public final class Saturating {
+
+    private Saturating() {
+    }
+
+    public static long add(long a, long b) {
+        long result = a + b;
+        if (((a ^ result) & (b ^ result)) < 0) {
+            return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return result;
+    }
+
+    public static long subtract(long a, long b) {
+        long result = a - b;
+        if (((a ^ b) & (a ^ result)) < 0) {
+            return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return result;
+    }
+
+    public static long multiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long result = a * b;
+        if ((high == 0 && result >= 0) || (high == -1 && result < 0)) {
+            return result;
+        }
+        return (a < 0) == (b < 0) ? Long.MAX_VALUE : Long.MIN_VALUE;
+    }
+
+    public static int toInt(long value) {
+        return value > Integer.MAX_VALUE ? Integer.MAX_VALUE : value < Integer.MIN_VALUE ? Integer.MIN_VALUE : (int) value;
+    }
+
+}
@@ -1,11 +1,14 @@
 package core;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -13,9 +16,29 @@ public class SaveManager {
 
     private static final String SAVED_DIR = "saved";
     private static final String BACKUP_DIR = "backups";
+    private static final String EXPORT_DIR = "export";
+    private static final String WORLD_FILE = "world";
+    private static final SnapshotCache snapshotCache = new SnapshotCache();
+    private static final String JOURNAL_FILE = "journal";
+    private static final int CHECKPOINT_INTERVAL = 4;
+    private static final int RECENT_WEEKS = 20;
+    private static final int DECADE_WEEKS = 1000;
+    private static final int SAVE_QUEUE_CAPACITY = 4;
+    private static final BackupStore backupStore = new BackupStore(new File(BACKUP_DIR));
+    private static final CommandJournal journal = new CommandJournal(new File(BACKUP_DIR, JOURNAL_FILE));
     private static final Pattern WEEK_PATTERN = Pattern.compile(".*\\.week_(\\d+)");
-
-    public static int getCurrentWeek() {
+    private static final Pattern LEGACY_BACKUP_PATTERN = Pattern.compile("backup\\..*\\.week_(\\d+)");
+    private static final ExecutorService maintenance = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "backup-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final SnapshotWriter snapshotWriter = new SnapshotWriter(SAVE_QUEUE_CAPACITY);
+    private static final WeekCache weekCache = new WeekCache(Long.getLong("brombeer.weekCacheBytes", 16L << 20));
+    private static TreeSet<Integer> legacyWeeks;
+
+    public static int getCurrentWeek() throws IOException {
+        snapshotWriter.await();
         File savedDir = new File(SAVED_DIR);
         if (!savedDir.exists() || !savedDir.isDirectory()) {
             return 0;
@@ -26,51 +49,155 @@ public class SaveManager {
             return 0;
         }
 
-        int maxWeek = 0;
+        Set<Integer> weeks = new TreeSet<>(Collections.reverseOrder());
         for (File file : stateFiles) {
             Matcher matcher = WEEK_PATTERN.matcher(file.getName());
             if (matcher.matches()) {
-                int week = Integer.parseInt(matcher.group(1));
-                maxWeek = Math.max(maxWeek, week);
+                weeks.add(Integer.parseInt(matcher.group(1)));
+            }
+        }
+
+        for (int week : weeks) {
+            File snapshot = getSnapshotFile(week);
+            if (!snapshot.exists() || BinarySnapshot.verify(snapshot)) {
+                return week;
             }
+            System.err.println("Skipping damaged save: " + snapshot.getName());
         }
 
-        return maxWeek;
+        int damaged = weeks.iterator().next();
+        List<Integer> available = listAvailableWeeks();
+        for (int i = available.size() - 1; i >= 0; i--) {
+            if (available.get(i) <= damaged) {
+                System.err.println("Rebuilding Week " + available.get(i) + " from backups");
+                return available.get(i);
+            }
+        }
+        throw new IOException("Saved game is damaged and no backup can rebuild it: " + getSnapshotFile(damaged).getName());
     }
 
     public static void loadGameState(FactionRegistry registry, int week) throws IOException {
+        flushSaves();
         File savedDir = new File(SAVED_DIR);
         if (!savedDir.exists()) {
             throw new FileNotFoundException("No saved games found");
         }
 
-        for (Faction faction : registry.getAllFactions().values()) {
-            String filename = faction.getName() + ".week_" + week;
-            File stateFile = new File(savedDir, filename);
+        ByteBuffer cached = weekCache.get(week);
+        if (cached != null) {
+            BinarySnapshot.decode(cached, registry);
+            return;
+        }
 
-            if (stateFile.exists()) {
-                FactionStateFormatter.load(faction, stateFile);
+        try {
+            loadSaved(registry, savedDir, week);
+        } catch (IOException e) {
+            if (!listAvailableWeeks().contains(week)) {
+                throw e;
+            }
+            restore(registry, week, null);
+            cached = weekCache.peek(week);
+            if (cached != null) {
+                BinarySnapshot.decode(cached, registry);
             } else {
-                throw new FileNotFoundException("State file not found: " + filename);
+                loadSaved(registry, savedDir, week);
             }
         }
     }
 
+    private static void loadSaved(FactionRegistry registry, File savedDir, int week) throws IOException {
+        File snapshot = getSnapshotFile(week);
+        if (snapshot.exists()) {
+            ByteBuffer data = BinarySnapshot.read(snapshot);
+            BinarySnapshot.decode(data.duplicate(), registry);
+            weekCache.put(week, data);
+        } else {
+            SnapshotConverter.importText(registry, savedDir, week);
+            weekCache.put(week, BinarySnapshot.encode(registry.getFactionsInOrder(), week, snapshotCache));
+        }
+    }
+
     public static void saveGameState(FactionRegistry registry, int week) throws IOException {
-        archiveCurrentWeek(week - 1);
+        saveGameStateAsync(registry, week);
+        flushSaves();
+    }
+
+    public static void saveGameStateAsync(FactionRegistry registry, int week) throws IOException {
+        ByteBuffer snapshot = BinarySnapshot.encode(registry.getFactionsInOrder(), week, snapshotCache);
+        weekCache.put(week, snapshot);
+        snapshotWriter.submit(week, () -> {
+            Files.createDirectories(new File(SAVED_DIR).toPath());
+            BinarySnapshot.write(snapshot, getSnapshotFile(week));
+            archiveCurrentWeek(week - 1);
+        });
+    }
+
+    public static void flushSaves() throws IOException {
+        snapshotWriter.flush();
+    }
+
+    public static List<IOException> pollSaveFailures() {
+        return snapshotWriter.pollFailures();
+    }
+
+    public static void journalWeek(FactionRegistry registry, int week, long seed, List<String> commands) throws IOException {
+        archivePreviousWeek(registry, week);
+        journal.record(week, seed, commands);
+        weekCache.invalidateFrom(week);
+    }
+
+    public static void journalWeek(FactionRegistry registry, int week, long seed, CommandBatch batch) throws IOException {
+        archivePreviousWeek(registry, week);
+        journal.record(week, seed, batch);
+        weekCache.invalidateFrom(week);
+    }
+
+    private static void archivePreviousWeek(FactionRegistry registry, int week) throws IOException {
+        if (week > 0 && !snapshotWriter.isPending(week - 1) && !getSnapshotFile(week - 1).exists()) {
+            backupStore.archive(BinarySnapshot.encode(registry.getFactionsInOrder(), week - 1, snapshotCache), week - 1);
+        }
+    }
+
+    public static File getSnapshotFile(int week) {
+        return new File(SAVED_DIR, WORLD_FILE + ".week_" + week);
+    }
+
+    public static File exportText(FactionRegistry registry, int week) throws IOException {
+        File exportDir = new File(EXPORT_DIR);
+        SnapshotConverter.exportText(registry, exportDir, week);
+        return exportDir;
+    }
 
+    public static void importText(FactionRegistry registry, int week) throws IOException {
+        flushSaves();
+        SnapshotConverter.importText(registry, new File(EXPORT_DIR), week);
         File savedDir = new File(SAVED_DIR);
         Files.createDirectories(savedDir.toPath());
+        ByteBuffer snapshot = BinarySnapshot.encode(registry.getFactionsInOrder(), week, snapshotCache);
+        BinarySnapshot.write(snapshot.duplicate(), getSnapshotFile(week));
+        journal.markBase(week);
+        weekCache.invalidateFrom(week);
+        weekCache.put(week, snapshot);
+    }
 
-        for (Faction faction : registry.getAllFactions().values()) {
-            String filename = faction.getName() + ".week_" + week;
-            File stateFile = new File(savedDir, filename);
-            FactionStateFormatter.save(faction, stateFile);
-        }
+    public static SnapshotCache getSnapshotCache() {
+        return snapshotCache;
+    }
+
+    public static WeekCache getWeekCache() {
+        return weekCache;
+    }
+
+    public static BackupStore getBackupStore() {
+        return backupStore;
+    }
+
+    public static CommandJournal getJournal() {
+        return journal;
     }
 
     private static void archiveCurrentWeek(int weekToArchive) throws IOException {
-        if (weekToArchive <= 0) return;
+        if (weekToArchive < 0) return;
 
         File savedDir = new File(SAVED_DIR);
         File backupDir = new File(BACKUP_DIR);
@@ -83,46 +210,115 @@ public class SaveManager {
         if (filesToArchive == null) return;
 
         for (File file : filesToArchive) {
+            if (file.equals(getSnapshotFile(weekToArchive)) && BinarySnapshot.verify(file)) {
+                if (weekToArchive % CHECKPOINT_INTERVAL == 0 || !isReplayable(weekToArchive, journal.readTimeline())) {
+                    backupStore.archive(file, weekToArchive);
+                } else {
+                    backupStore.remove(Collections.singletonList(weekToArchive));
+                }
+                Files.delete(file.toPath());
+                continue;
+            }
+
             String originalName = file.getName();
             String archivedName = "backup." + originalName;
             Path destination = Paths.get(BACKUP_DIR, archivedName);
 
-            Files.move(file.toPath(), destination, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            Files.move(file.toPath(), destination,
+                    java.nio.file.StandardCopyOption.REPLACE_EXISTING, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+            synchronized (SaveManager.class) {
+                legacyWeeks().add(weekToArchive);
+            }
         }
+        BinarySnapshot.syncDirectory(backupDir);
+        BinarySnapshot.syncDirectory(savedDir);
 
         cleanupOldBackups(weekToArchive);
     }
 
-    private static void cleanupOldBackups(int currentWeek) throws IOException {
-        File backupDir = new File(BACKUP_DIR);
-        if (!backupDir.exists() || !backupDir.isDirectory()) {
-            return;
+    private static void cleanupOldBackups(int currentWeek) {
+        maintenance.execute(() -> {
+            try {
+                compactBackups(currentWeek);
+            } catch (IOException e) {
+                System.err.println("Backup compaction failed: " + e.getMessage());
+            }
+        });
+    }
+
+    public static void awaitMaintenance() {
+        try {
+            maintenance.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Backup maintenance failed", e.getCause());
         }
+    }
 
-        final int WEEKS_TO_KEEP = 4;
-        long currentTimeMillis = System.currentTimeMillis();
+    private static void compactBackups(int currentWeek) throws IOException {
+        Map<Integer, CommandJournal.Entry> timeline = journal.readTimeline();
+        backupStore.remove(expiredWeeks(backupStore.listWeeks(), currentWeek, timeline.keySet()));
+        backupStore.collectGarbage();
+        journal.compact();
 
-        File[] backupFiles = backupDir.listFiles((dir, name) -> name.matches("backup\\..*\\.week_\\d+"));
-        if (backupFiles == null) {
-            return;
+        List<Integer> legacy;
+        synchronized (SaveManager.class) {
+            legacy = new ArrayList<>(legacyWeeks());
+        }
+        for (int week : expiredWeeks(legacy, currentWeek, new HashSet<>(legacy))) {
+            File[] files = new File(BACKUP_DIR).listFiles((dir, name) -> name.matches("backup\\..*\\.week_" + week));
+            if (files != null) {
+                for (File file : files) {
+                    if (!file.delete()) {
+                        System.err.println("Failed to delete old backup: " + file.getName());
+                    }
+                }
+            }
+            synchronized (SaveManager.class) {
+                legacyWeeks().remove(week);
+            }
         }
+    }
 
-        for (File file : backupFiles) {
-            try {
-                FileTime fileTime = Files.getLastModifiedTime(file.toPath());
-                long fileAgeMillis = currentTimeMillis - fileTime.toMillis();
-                long weeksInMillis = WEEKS_TO_KEEP * 7L * 24L * 60L * 60L * 1000L;
+    private static Set<Integer> expiredWeeks(List<Integer> weeks, int currentWeek, Collection<Integer> removable) {
+        Set<Integer> expired = new TreeSet<>();
+        int lastBucket = -1;
+        for (int week : weeks) {
+            int age = currentWeek - week;
+            if (age <= RECENT_WEEKS) {
+                continue;
+            }
+            int bucketSize = age > DECADE_WEEKS ? 100 : 10;
+            int bucket = week / bucketSize * bucketSize;
+            if (bucket != lastBucket) {
+                lastBucket = bucket;
+            } else if (removable.contains(week)) {
+                expired.add(week);
+            }
+        }
+        return expired;
+    }
 
-                if (fileAgeMillis > weeksInMillis) {
-                    Files.delete(file.toPath());
+    private static TreeSet<Integer> legacyWeeks() {
+        if (legacyWeeks == null) {
+            legacyWeeks = new TreeSet<>();
+            File[] files = new File(BACKUP_DIR).listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    Matcher matcher = LEGACY_BACKUP_PATTERN.matcher(file.getName());
+                    if (matcher.matches()) {
+                        legacyWeeks.add(Integer.parseInt(matcher.group(1)));
+                    }
                 }
-            } catch (IOException e) {
-                System.err.println("Failed to delete old backup: " + file.getName());
             }
         }
+        return legacyWeeks;
     }
 
     public static void deleteAllSaves() throws IOException {
+        flushSaves();
+        weekCache.clear();
         File savedDir = new File(SAVED_DIR);
         if (!savedDir.exists() || !savedDir.isDirectory()) {
             return;
@@ -131,7 +327,7 @@ public class SaveManager {
         File[] files = savedDir.listFiles();
         if (files != null) {
             for (File file : files) {
-                if (file.isFile() && file.getName().matches(".*\\.week_\\d+")) {
+                if (file.isFile() && file.getName().matches(".*\\.week_\\d+(\\.tmp)?")) {
                     if (!file.delete()) {
                         throw new IOException("Failed to delete: " + file.getAbsolutePath());
                     }
@@ -141,45 +337,134 @@ public class SaveManager {
     }
 
     public static List<Integer> listAvailableWeeks() {
-        List<Integer> weeks = new ArrayList<>();
-        File backupDir = new File(BACKUP_DIR);
+        snapshotWriter.await();
+        List<Integer> checkpoints = backupStore.listWeeks();
+        Set<Integer> weekSet = new TreeSet<>(checkpoints);
+        synchronized (SaveManager.class) {
+            weekSet.addAll(legacyWeeks());
+        }
 
-        if (backupDir.exists() && backupDir.isDirectory()) {
-            File[] files = backupDir.listFiles((dir, name) -> name.matches("backup\\..*\\.week_\\d+"));
-            if (files != null) {
-                Set<Integer> weekSet = new TreeSet<>();
-                for (File file : files) {
-                    Matcher matcher = Pattern.compile("backup\\..*\\.week_(\\d+)").matcher(file.getName());
-                    if (matcher.matches()) {
-                        weekSet.add(Integer.parseInt(matcher.group(1)));
-                    }
+        try {
+            Set<Integer> checkpointSet = new HashSet<>(checkpoints);
+            boolean replayable = false;
+            int previous = -1;
+            for (int week : journal.readTimeline().keySet()) {
+                replayable = checkpointSet.contains(week - 1) || (replayable && week == previous + 1);
+                if (replayable) {
+                    weekSet.add(week);
                 }
-                weeks.addAll(weekSet);
+                previous = week;
             }
+        } catch (IOException e) {
+            System.err.println("Failed to read journal: " + e.getMessage());
         }
 
-        return weeks;
+        return new ArrayList<>(weekSet);
     }
 
     public static void restoreWeek(FactionRegistry registry, int week) throws IOException {
+        flushSaves();
+        restore(registry, week, weekCache.get(week));
+    }
+
+    private static void restore(FactionRegistry registry, int week, ByteBuffer cached) throws IOException {
         File backupDir = new File(BACKUP_DIR);
         if (!backupDir.exists()) {
             throw new FileNotFoundException("Backup directory not found");
         }
 
-        File[] backupFiles = backupDir.listFiles((dir, name) -> name.matches("backup\\..*\\.week_" + week));
-        if (backupFiles == null || backupFiles.length == 0) {
-            throw new FileNotFoundException("No backups found for week " + week);
+        boolean legacy;
+        synchronized (SaveManager.class) {
+            legacy = legacyWeeks().contains(week);
+        }
+        File[] backupFiles = legacy
+                ? backupDir.listFiles((dir, name) -> name.matches("backup\\..*\\.week_" + week))
+                : null;
+        if (!backupStore.contains(week) && (backupFiles == null || backupFiles.length == 0)) {
+            replayWeek(registry, week, cached);
+            return;
         }
 
         File savedDir = new File(SAVED_DIR);
         Files.createDirectories(savedDir.toPath());
 
-        for (File backupFile : backupFiles) {
+        if (cached != null) {
+            BinarySnapshot.write(cached, getSnapshotFile(week));
+            return;
+        }
+        if (backupStore.contains(week)) {
+            ByteBuffer snapshot = backupStore.read(week);
+            BinarySnapshot.write(snapshot.duplicate(), getSnapshotFile(week));
+            weekCache.put(week, snapshot);
+        }
+        if (backupFiles == null) {
+            return;
+        }
+
+        FactionIO.forEach(Arrays.asList(backupFiles), backupFile -> {
             String restoredName = backupFile.getName().substring(7);
             File destination = new File(savedDir, restoredName);
-            Files.copy(backupFile.toPath(), destination.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            File temp = new File(savedDir, restoredName + ".tmp");
+            Files.copy(backupFile.toPath(), temp.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp.toPath(), destination.toPath(),
+                    java.nio.file.StandardCopyOption.REPLACE_EXISTING, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+        });
+        BinarySnapshot.syncDirectory(savedDir);
+    }
+
+    private static void replayWeek(FactionRegistry registry, int week, ByteBuffer cached) throws IOException {
+        Map<Integer, CommandJournal.Entry> timeline = journal.readTimeline();
+        int base = findCheckpoint(week, timeline);
+        if (base < 0) {
+            throw new FileNotFoundException("No backups found for week " + week);
+        }
+
+        if (cached != null) {
+            BinarySnapshot.write(cached, getSnapshotFile(week));
+            return;
+        }
+
+        ByteBuffer checkpoint = weekCache.peek(base);
+        if (checkpoint == null) {
+            checkpoint = backupStore.read(base);
+            weekCache.put(base, checkpoint);
+        }
+        BinarySnapshot.decode(checkpoint.duplicate(), registry);
+
+        WeekResolver resolver = new WeekResolver();
+        for (int next = base + 1; next <= week; next++) {
+            CommandJournal.Entry entry = timeline.get(next);
+            if (entry.hasCommands()) {
+                CommandJournal.replayWeek(registry, entry.getSeed(), entry.compile(registry), null, resolver);
+                continue;
+            }
+
+            int idle = 1;
+            while (next + idle <= week && !timeline.get(next + idle).hasCommands()) {
+                idle++;
+            }
+            next += idle - 1;
+            CommandJournal.replayIdleWeeks(registry, timeline.get(next).getSeed(), idle);
+        }
+        ByteBuffer snapshot = BinarySnapshot.encode(registry.getFactionsInOrder(), week, snapshotCache);
+        BinarySnapshot.write(snapshot.duplicate(), getSnapshotFile(week));
+        weekCache.put(week, snapshot);
+    }
+
+    private static boolean isReplayable(int week, Map<Integer, CommandJournal.Entry> timeline) {
+        return findCheckpoint(week, timeline) >= 0;
+    }
+
+    private static int findCheckpoint(int week, Map<Integer, CommandJournal.Entry> timeline) {
+        for (int base = week - 1; base >= 0; base--) {
+            if (!timeline.containsKey(base + 1)) {
+                return -1;
+            }
+            if (backupStore.contains(base)) {
+                return base;
+            }
         }
+        return -1;
     }
 
 }
@@ -0,0 +1,132 @@
+package core;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SnapshotCache {
+
+    private static final int[] FACTION_SECTIONS = {
+            BinarySnapshot.SECTION_FACTIONS, BinarySnapshot.SECTION_RESOURCES, BinarySnapshot.SECTION_TRAITS,
+            BinarySnapshot.SECTION_BUILDINGS, BinarySnapshot.SECTION_QUEUE, BinarySnapshot.SECTION_ARMIES,
+            BinarySnapshot.SECTION_RESEARCH
+    };
+    private static final int SECTION_SLOTS = 16;
+
+    private static class Entry {
+        final long[] versions = new long[SECTION_SLOTS];
+        final byte[][] records = new byte[SECTION_SLOTS][];
+        final SnapshotEncoder scratch = new SnapshotEncoder(512);
+        long changeStamp;
+    }
+
+    private final Map<Faction, Entry> entries;
+    private final AtomicInteger encodedRecords;
+    private final AtomicInteger reusedRecords;
+
+    public SnapshotCache() {
+        this.entries = new IdentityHashMap<>();
+        this.encodedRecords = new AtomicInteger();
+        this.reusedRecords = new AtomicInteger();
+    }
+
+    public byte[] record(int section, Faction faction) {
+        Entry entry = entryFor(faction);
+        synchronized (entry) {
+            byte[] cached = entry.records[section];
+            SnapshotEncoder scratch = entry.scratch;
+
+            if (section == BinarySnapshot.SECTION_FACTIONS) {
+                scratch.reset();
+                BinarySnapshot.encodeRecord(section, faction, scratch);
+                if (cached != null && scratch.contentEquals(cached)) {
+                    reusedRecords.incrementAndGet();
+                    return cached;
+                }
+                return store(entry, section, 0, scratch.toByteArray());
+            }
+
+            long version = versionOf(section, faction);
+            if (cached != null && entry.versions[section] == version) {
+                reusedRecords.incrementAndGet();
+                return cached;
+            }
+
+            scratch.reset();
+            BinarySnapshot.encodeRecord(section, faction, scratch);
+            return store(entry, section, version, scratch.toByteArray());
+        }
+    }
+
+    private synchronized Entry entryFor(Faction faction) {
+        return entries.computeIfAbsent(faction, f -> new Entry());
+    }
+
+    private byte[] store(Entry entry, int section, long version, byte[] record) {
+        encodedRecords.incrementAndGet();
+        entry.versions[section] = version;
+        entry.records[section] = record;
+        entry.changeStamp = StateVersion.next();
+        return record;
+    }
+
+    public long refresh(Faction faction) {
+        for (int section : FACTION_SECTIONS) {
+            record(section, faction);
+        }
+        Entry entry = entryFor(faction);
+        synchronized (entry) {
+            return entry.changeStamp;
+        }
+    }
+
+    private static long versionOf(int section, Faction faction) {
+        switch (section) {
+            case BinarySnapshot.SECTION_RESOURCES:
+                return faction.getResourcesVersion() ^ ((long) ResourceType.count() << 48);
+            case BinarySnapshot.SECTION_TRAITS:
+                return faction.getTraitsVersion();
+            case BinarySnapshot.SECTION_BUILDINGS:
+                return faction.getBuildingsVersion();
+            case BinarySnapshot.SECTION_QUEUE:
+                return faction.getQueueVersion();
+            case BinarySnapshot.SECTION_ARMIES:
+                return faction.getArmiesVersion();
+            case BinarySnapshot.SECTION_RESEARCH:
+                return faction.getResearchVersion();
+            default:
+                return faction.getStateVersion();
+        }
+    }
+
+    public synchronized void retain(Collection<Faction> factions) {
+        Set<Faction> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        live.addAll(factions);
+        entries.keySet().retainAll(live);
+    }
+
+    public synchronized void invalidate(Faction faction) {
+        entries.remove(faction);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public int getEncodedRecords() {
+        return encodedRecords.get();
+    }
+
+    public int getReusedRecords() {
+        return reusedRecords.get();
+    }
+
+    public void resetCounters() {
+        encodedRecords.set(0);
+        reusedRecords.set(0);
+    }
+
+}
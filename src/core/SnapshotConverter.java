@@ -0,0 +1,41 @@
+package core;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class SnapshotConverter {
+
+    public static void exportText(FactionRegistry registry, File directory, int week) throws IOException {
+        Files.createDirectories(directory.toPath());
+        FactionIO.forEach(registry.getFactionsInOrder(),
+                faction -> FactionStateFormatter.save(faction, new File(directory, faction.getName() + ".week_" + week)));
+    }
+
+    public static void importText(FactionRegistry registry, File directory, int week) throws IOException {
+        for (Faction faction : registry.getFactionsInOrder()) {
+            File stateFile = new File(directory, faction.getName() + ".week_" + week);
+            if (!stateFile.exists()) {
+                throw new FileNotFoundException("State file not found: " + stateFile.getName());
+            }
+        }
+        for (Faction faction : registry.getFactionsInOrder()) {
+            faction.clearLoadedState();
+        }
+        FactionIO.forEach(registry.getFactionsInOrder(),
+                faction -> FactionStateFormatter.load(faction, new File(directory, faction.getName() + ".week_" + week)));
+    }
+
+    public static void textToBinary(FactionRegistry registry, File textDirectory, int week, File snapshotFile) throws IOException {
+        importText(registry, textDirectory, week);
+        BinarySnapshot.save(registry, week, snapshotFile);
+    }
+
+    public static int binaryToText(FactionRegistry registry, File snapshotFile, File textDirectory) throws IOException {
+        int week = BinarySnapshot.load(registry, snapshotFile);
+        exportText(registry, textDirectory, week);
+        return week;
+    }
+
+}
@@ -0,0 +1,135 @@
+package core;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class SnapshotDecoder {
+
+    private final ByteBuffer buffer;
+
+    public SnapshotDecoder(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public int readByte() throws IOException {
+        try {
+            return buffer.get() & 0xFF;
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public int readShort() throws IOException {
+        try {
+            return buffer.getShort() & 0xFFFF;
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    public int readInt() throws IOException {
+        try {
+            return buffer.getInt();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    public long readLong() throws IOException {
+        try {
+            return buffer.getLong();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    public double readDouble() throws IOException {
+        try {
+            return buffer.getDouble();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in snapshot");
+    }
+
+    public int readVarInt() throws IOException {
+        long value = readVarLong();
+        if (value < 0 || value > 0xFFFFFFFFL) {
+            throw new IOException("Malformed varint in snapshot");
+        }
+        return (int) value;
+    }
+
+    public long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public int readSignedVarInt() throws IOException {
+        return (int) readSignedVarLong();
+    }
+
+    public String readString() throws IOException {
+        int length = readVarInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw truncated();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public String readNullableString() throws IOException {
+        return readBoolean() ? readString() : null;
+    }
+
+    public byte[] readBytes(int length) throws IOException {
+        if (length < 0 || length > buffer.remaining()) {
+            throw truncated();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    public SnapshotDecoder readRecord() throws IOException {
+        int length = readVarInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw truncated();
+        }
+        ByteBuffer record = buffer.slice();
+        record.limit(length);
+        buffer.position(buffer.position() + length);
+        return new SnapshotDecoder(record);
+    }
+
+    public int position() {
+        return buffer.position();
+    }
+
+    public int remaining() {
+        return buffer.remaining();
+    }
+
+    private static IOException truncated() {
+        return new IOException("Snapshot is truncated");
+    }
+
+}
@@ -0,0 +1,141 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+public class SnapshotEncoder {
+
+    private ByteBuffer buffer;
+
+    public SnapshotEncoder(int initialCapacity) {
+        this.buffer = ByteBuffer.allocate(Math.max(16, initialCapacity));
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+
+    public void writeByte(int value) {
+        ensure(1);
+        buffer.put((byte) value);
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    public void writeShort(int value) {
+        ensure(2);
+        buffer.putShort((short) value);
+    }
+
+    public void writeInt(int value) {
+        ensure(4);
+        buffer.putInt(value);
+    }
+
+    public void writeLong(long value) {
+        ensure(8);
+        buffer.putLong(value);
+    }
+
+    public void writeDouble(double value) {
+        ensure(8);
+        buffer.putDouble(value);
+    }
+
+    public void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    public void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeSignedVarInt(int value) {
+        writeSignedVarLong(value);
+    }
+
+    public void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    public void writeNullableString(String value) {
+        writeBoolean(value != null);
+        if (value != null) {
+            writeString(value);
+        }
+    }
+
+    public void writeBytes(byte[] bytes, int offset, int length) {
+        ensure(length);
+        buffer.put(bytes, offset, length);
+    }
+
+    public void writeEncoded(SnapshotEncoder other) {
+        writeBytes(other.buffer.array(), 0, other.buffer.position());
+    }
+
+    public int checksum(int from, int to) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), from, to - from);
+        return (int) crc.getValue();
+    }
+
+    public void writeBytes(byte[] bytes) {
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    public boolean contentEquals(byte[] bytes) {
+        if (bytes.length != buffer.position()) {
+            return false;
+        }
+        return Arrays.equals(buffer.array(), 0, bytes.length, bytes, 0, bytes.length);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public void putInt(int index, int value) {
+        buffer.putInt(index, value);
+    }
+
+    public void putLong(int index, long value) {
+        buffer.putLong(index, value);
+    }
+
+    public int position() {
+        return buffer.position();
+    }
+
+    public void reset() {
+        buffer.clear();
+    }
+
+    public ByteBuffer toByteBuffer() {
+        ByteBuffer result = buffer.duplicate();
+        result.flip();
+        return result;
+    }
+
+}
@@ -0,0 +1,105 @@
+package core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+public class SnapshotWriter {
+
+    public interface Write {
+        void run() throws IOException;
+    }
+
+    private final ExecutorService executor;
+    private final Semaphore slots;
+    private final Object lock;
+    private final List<IOException> failures;
+    private final Set<Integer> pendingWeeks;
+    private int pending;
+
+    public SnapshotWriter(int capacity) {
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.slots = new Semaphore(Math.max(1, capacity));
+        this.lock = new Object();
+        this.failures = new ArrayList<>();
+        this.pendingWeeks = new HashSet<>();
+        this.pending = 0;
+    }
+
+    public void submit(int week, Write write) {
+        slots.acquireUninterruptibly();
+        synchronized (lock) {
+            pending++;
+            pendingWeeks.add(week);
+        }
+        executor.execute(() -> {
+            try {
+                write.run();
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failures.add(new IOException("Week " + week + " was not saved: " + e.getMessage(), e));
+                }
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    failures.add(new IOException("Week " + week + " was not saved: " + e, e));
+                }
+            } finally {
+                synchronized (lock) {
+                    pending--;
+                    pendingWeeks.remove(week);
+                    lock.notifyAll();
+                }
+                slots.release();
+            }
+        });
+    }
+
+    public boolean isPending(int week) {
+        synchronized (lock) {
+            return pendingWeeks.contains(week);
+        }
+    }
+
+    public void await() {
+        synchronized (lock) {
+            while (pending > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for saves", e);
+                }
+            }
+        }
+    }
+
+    public void flush() throws IOException {
+        await();
+        List<IOException> flushed = pollFailures();
+        if (!flushed.isEmpty()) {
+            IOException first = flushed.get(0);
+            for (int i = 1; i < flushed.size(); i++) {
+                first.addSuppressed(flushed.get(i));
+            }
+            throw first;
+        }
+    }
+
+    public List<IOException> pollFailures() {
+        synchronized (lock) {
+            List<IOException> polled = new ArrayList<>(failures);
+            failures.clear();
+            return polled;
+        }
+    }
+
+}
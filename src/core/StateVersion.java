@@ -0,0 +1,16 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class StateVersion {
+
+    private static final AtomicLong CLOCK = new AtomicLong();
+
+    private StateVersion() {
+    }
+
+    public static long next() {
+        return CLOCK.incrementAndGet();
+    }
+
+}
@@ -1,5 +1,6 @@
 package core;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.LinkedHashMap;
@@ -20,6 +21,11 @@ public class Traits {
 
     private Map<String, Integer> traits;
     private Map<String, TraitDefinition> traitDefinitions;
+    private Map<String, Integer> traitsView;
+    private Map<String, TraitDefinition> traitDefinitionsView;
+    private DerivedStats stats;
+    private Map<String, Integer> categorySummation;
+    private long version;
 
     public static final Map<String, String> TRAIT_TYPES = new HashMap<>();
 
@@ -34,6 +40,17 @@ public class Traits {
     public Traits() {
         this.traits = new HashMap<>();
         this.traitDefinitions = new HashMap<>();
+        this.traitsView = Collections.unmodifiableMap(traits);
+        this.traitDefinitionsView = Collections.unmodifiableMap(traitDefinitions);
+        this.stats = new DerivedStats();
+        this.stats.putSource("traits", traits);
+        this.categorySummation = null;
+    }
+
+    private void traitsChanged() {
+        version = StateVersion.next();
+        stats.invalidate();
+        categorySummation = null;
     }
 
     public void addTrait(String traitName, int value, TraitDefinition definition) {
@@ -41,15 +58,18 @@ public class Traits {
         if (definition != null) {
             traitDefinitions.put(traitName, definition);
         }
+        traitsChanged();
     }
 
     public void addTrait(String traitName, int value) {
         traits.put(traitName, traits.getOrDefault(traitName, 0) + value);
+        traitsChanged();
     }
 
     public void removeTrait(String traitName) {
         traits.remove(traitName);
         traitDefinitions.remove(traitName);
+        traitsChanged();
     }
 
     public void setTrait(String traitName, int value) {
@@ -58,6 +78,7 @@ public class Traits {
         } else {
             traits.put(traitName, value);
         }
+        traitsChanged();
     }
 
     public void setTrait(String traitName, int value, TraitDefinition definition) {
@@ -67,8 +88,18 @@ public class Traits {
         }
     }
 
+    void restore(Map<String, Integer> values, Map<String, TraitDefinition> definitions) {
+        traits.clear();
+        traits.putAll(values);
+        traitDefinitions.clear();
+        traitDefinitions.putAll(definitions);
+        traitsChanged();
+    }
+
     public void registerTraitDefinition(String traitName, TraitDefinition definition) {
         traitDefinitions.put(traitName, definition);
+        categorySummation = null;
+        version = StateVersion.next();
     }
 
     public TraitDefinition getTraitDefinition(String traitName) {
@@ -83,38 +114,52 @@ public class Traits {
         return traits.containsKey(traitName);
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public DerivedStats getStats() {
+        return stats;
+    }
+
     public int calculateTotalActionPoints() {
-        int total = 0;
-        for (Map.Entry<String, Integer> entry : traits.entrySet()) {
-            if (entry.getKey().equals("actionPoints")) {
-                total += entry.getValue();
-            }
-        }
-        return total;
+        return stats.get(DerivedStats.ACTION_POINTS);
     }
 
     public int getMaxConcurrentBuildingsBonus() {
-        return getTrait("maxConcurrentBuildings");
+        return stats.get(DerivedStats.MAX_CONCURRENT_BUILDINGS);
     }
 
     public int getMaxBuildingTypeLimit(String buildingType) {
-        return getTrait("maxBuildingType_" + buildingType);
+        return stats.get(DerivedStats.buildingLimitSlot(buildingType));
     }
 
     public int getPopulationGrowthModifier() {
-        return getTrait("populationGrowthModifier");
+        return stats.get(DerivedStats.POPULATION_GROWTH);
     }
 
     public int getPopulationConsumptionModifier() {
-        return getTrait("populationConsumptionModifier");
+        return stats.get(DerivedStats.POPULATION_CONSUMPTION);
+    }
+
+    public int getArmyMightBonus() {
+        return stats.get(DerivedStats.ARMY_MIGHT_BONUS);
     }
 
     public int getResourceProductionModifier(String resourceType) {
-        return getTrait("resourceProduction_" + resourceType);
+        return stats.get("resourceProduction_" + resourceType);
     }
 
     public int getResourceConsumptionModifier(String resourceType) {
-        return getTrait("resourceConsumption_" + resourceType);
+        return stats.get("resourceConsumption_" + resourceType);
+    }
+
+    public int getResourceProductionModifier(int resourceIndex) {
+        return stats.get(DerivedStats.productionSlot(resourceIndex));
+    }
+
+    public int getResourceConsumptionModifier(int resourceIndex) {
+        return stats.get(DerivedStats.consumptionSlot(resourceIndex));
     }
 
     public Map<String, Integer> getAllTraits() {
@@ -125,20 +170,36 @@ public class Traits {
         return new HashMap<>(traitDefinitions);
     }
 
+    public Map<String, Integer> getTraitsView() {
+        return traitsView;
+    }
+
+    public Map<String, TraitDefinition> getTraitDefinitionsView() {
+        return traitDefinitionsView;
+    }
+
     public Map<String, Integer> getTraitSummationByCategory() {
-        Map<String, Integer> summation = new LinkedHashMap<>();
-        
-        for (Map.Entry<String, Integer> entry : traits.entrySet()) {
-            String traitName = entry.getKey();
-            int value = entry.getValue();
-            TraitDefinition def = traitDefinitions.get(traitName);
-            
-            if (def != null) {
-                summation.put(def.category, summation.getOrDefault(def.category, 0) + value);
+        return new LinkedHashMap<>(getTraitSummationView());
+    }
+
+    public Map<String, Integer> getTraitSummationView() {
+        if (categorySummation == null) {
+            Map<String, Integer> summation = new LinkedHashMap<>();
+
+            for (Map.Entry<String, Integer> entry : traits.entrySet()) {
+                String traitName = entry.getKey();
+                int value = entry.getValue();
+                TraitDefinition def = traitDefinitions.get(traitName);
+
+                if (def != null) {
+                    summation.put(def.category, summation.getOrDefault(def.category, 0) + value);
+                }
             }
+
+            categorySummation = Collections.unmodifiableMap(summation);
         }
-        
-        return summation;
+
+        return categorySummation;
     }
 
     @Override
@@ -0,0 +1,107 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class WeekCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<Integer, ByteBuffer> weeks;
+    private long bytes;
+    private int hits;
+    private int misses;
+    private int evictions;
+
+    public WeekCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.weeks = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public synchronized ByteBuffer get(int week) {
+        ByteBuffer snapshot = weeks.get(week);
+        if (snapshot == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return snapshot.duplicate();
+    }
+
+    public synchronized ByteBuffer peek(int week) {
+        ByteBuffer snapshot = weeks.get(week);
+        return snapshot != null ? snapshot.duplicate() : null;
+    }
+
+    public synchronized void put(int week, ByteBuffer snapshot) {
+        remove(week);
+        int weight = snapshot.remaining();
+        if (weight > maxBytes) {
+            return;
+        }
+
+        ByteBuffer stored = snapshot.duplicate();
+        if (stored.capacity() != weight) {
+            stored = ByteBuffer.allocate(weight).put(stored);
+            stored.flip();
+        }
+        weeks.put(week, stored.asReadOnlyBuffer());
+        bytes += weight;
+
+        Iterator<ByteBuffer> eldest = weeks.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().remaining();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidateFrom(int week) {
+        Iterator<Map.Entry<Integer, ByteBuffer>> entries = weeks.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Integer, ByteBuffer> entry = entries.next();
+            if (entry.getKey() >= week) {
+                bytes -= entry.getValue().remaining();
+                entries.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        weeks.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return weeks.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    public synchronized int getEvictions() {
+        return evictions;
+    }
+
+    private void remove(int week) {
+        ByteBuffer previous = weeks.remove(week);
+        if (previous != null) {
+            bytes -= previous.remaining();
+        }
+    }
+
+}
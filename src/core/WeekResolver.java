@@ -0,0 +1,60 @@
+package core;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public class WeekResolver {
+
+    private final ActorRuntime runtime;
+    private final boolean ownsRuntime;
+
+    public WeekResolver() {
+        this.runtime = null;
+        this.ownsRuntime = false;
+    }
+
+    public WeekResolver(int parallelism) {
+        this.runtime = parallelism > 1 ? new ActorRuntime(parallelism) : null;
+        this.ownsRuntime = runtime != null;
+    }
+
+    public WeekResolver(ActorRuntime runtime) {
+        this.runtime = runtime;
+        this.ownsRuntime = false;
+    }
+
+    public void resolve(FactionRegistry registry) {
+        List<Faction> factions = registry.getFactionsInOrder();
+
+        runLocalPhase(factions, Faction::processEconomy);
+        for (Faction faction : factions) {
+            faction.processMilitary();
+        }
+        runLocalPhase(factions, Faction::processGrowth);
+    }
+
+    private void runLocalPhase(List<Faction> factions, Consumer<Faction> phase) {
+        if (runtime == null || factions.size() < 2) {
+            for (Faction faction : factions) {
+                phase.accept(faction);
+            }
+            return;
+        }
+
+        for (Faction faction : factions) {
+            runtime.send(faction, phase);
+        }
+        runtime.awaitBarrier();
+    }
+
+    public ActorRuntime getRuntime() {
+        return runtime;
+    }
+
+    public void shutdown() {
+        if (ownsRuntime) {
+            runtime.shutdown();
+        }
+    }
+
+}
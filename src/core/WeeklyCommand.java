@@ -0,0 +1,346 @@
+package core;
+
+public abstract class WeeklyCommand {
+
+    private final Faction faction;
+    private final int lineNumber;
+    private final String line;
+
+    private WeeklyCommand(Faction faction, int lineNumber, String line) {
+        this.faction = faction;
+        this.lineNumber = lineNumber;
+        this.line = line;
+    }
+
+    public Faction getFaction() {
+        return faction;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    public boolean isFactionLocal() {
+        return true;
+    }
+
+    abstract void check(CommandBudget budget) throws Exception;
+
+    abstract Object apply(Faction faction) throws Exception;
+
+    static WeeklyCommand compile(Faction faction, String[] parts, int count, int lineNumber, String line,
+                                 FactionRegistry registry) {
+        switch (parts[0]) {
+            case "ARMY_CREATE":
+                require(count >= 3, "ARMY_CREATE requires name and amount");
+                return new ArmyCreate(faction, lineNumber, line, parts[1], Long.parseLong(parts[2]));
+
+            case "ARMY_ATTACK": {
+                require(count >= 3, "ARMY_ATTACK requires army name and target faction");
+                String target = parts[2];
+                require(registry.hasFaction(target), "Target faction not found: " + target);
+                int distance = registry.getDistance(faction.getName(), target);
+                require(distance >= 0, "Distance to " + target + " not set");
+                return new ArmyAttack(faction, lineNumber, line, new ArmyRef(parts[1]), target, distance);
+            }
+
+            case "ARMY_PROTECT":
+                require(count >= 3, "ARMY_PROTECT requires army name and target");
+                return new ArmyProtect(faction, lineNumber, line, new ArmyRef(parts[1]),
+                        registry.hasFaction(parts[2]) ? null : new ArmyRef(parts[2]));
+
+            case "ARMY_RETREAT":
+                require(count >= 2, "ARMY_RETREAT requires army name");
+                return new ArmyRetreat(faction, lineNumber, line, new ArmyRef(parts[1]));
+
+            case "BUILDING_CONSTRUCT": {
+                require(count >= 2, "BUILDING_CONSTRUCT requires building name");
+                BuildingDefinition definition = BuildingDefinition.get(parts[1]);
+                require(definition != null, "Unknown building type: " + parts[1]);
+                return new BuildingConstruct(faction, lineNumber, line, definition);
+            }
+
+            case "BUILDING_DEMOLISH":
+                require(count >= 2, "BUILDING_DEMOLISH requires building name");
+                return new BuildingDemolish(faction, lineNumber, line, parts[1]);
+
+            case "BUILDING_POSTPONE":
+                require(count >= 2, "BUILDING_POSTPONE requires building ID");
+                return new BuildingPostpone(faction, lineNumber, line, parts[1]);
+
+            case "RESEARCH":
+                require(count >= 2, "RESEARCH requires field name");
+                return new ResearchField(faction, lineNumber, line, parts[1], count > 2 ? Integer.parseInt(parts[2]) : 1);
+
+            default:
+                throw new IllegalArgumentException("Unknown command: " + parts[0]);
+        }
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    static class ArmyRef {
+        private final String text;
+        private final String key;
+        private final Integer id;
+
+        ArmyRef(String text) {
+            this.text = text;
+            if (text.startsWith("#")) {
+                Integer parsed;
+                try {
+                    parsed = Integer.parseInt(text.substring(1));
+                } catch (NumberFormatException e) {
+                    parsed = null;
+                }
+                this.key = null;
+                this.id = parsed;
+            } else {
+                this.key = Army.keyOf(text);
+                this.id = null;
+            }
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        Integer getId() {
+            return id;
+        }
+
+        Army resolve(Faction faction) {
+            if (key != null) {
+                return faction.getArmies().get(key);
+            }
+            return id != null ? faction.getArmy(id) : null;
+        }
+
+        Army require(Faction faction) throws Exception {
+            Army army = resolve(faction);
+            if (army == null) throw new Exception("Army not found: " + text);
+            return army;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    static class ArmyCreate extends WeeklyCommand {
+        private final String name;
+        private final long amount;
+
+        ArmyCreate(Faction faction, int lineNumber, String line, String name, long amount) {
+            super(faction, lineNumber, line);
+            this.name = name;
+            this.amount = amount;
+        }
+
+        @Override
+        void check(CommandBudget budget) throws Exception {
+            budget.createArmy(getFaction(), name, amount);
+        }
+
+        @Override
+        Object apply(Faction faction) throws Exception {
+            if (!ActionValidator.canCreateArmy(faction, amount)) {
+                throw new Exception("Cannot create army: insufficient population");
+            }
+            return faction.createArmy(name, amount);
+        }
+    }
+
+    static class ArmyAttack extends WeeklyCommand {
+        private final ArmyRef army;
+        private final String target;
+        private final int distance;
+
+        ArmyAttack(Faction faction, int lineNumber, String line, ArmyRef army, String target, int distance) {
+            super(faction, lineNumber, line);
+            this.army = army;
+            this.target = target;
+            this.distance = distance;
+        }
+
+        @Override
+        public boolean isFactionLocal() {
+            return false;
+        }
+
+        @Override
+        void check(CommandBudget budget) throws Exception {
+            budget.attack(getFaction(), army);
+        }
+
+        @Override
+        Object apply(Faction faction) throws Exception {
+            Army attacker = army.require(faction);
+            if (!attacker.isAlive()) {
+                throw new Exception("Cannot attack with army: " + army + " (army must be alive)");
+            }
+            attacker.setTarget(target, distance);
+            return null;
+        }
+    }
+
+    static class ArmyProtect extends WeeklyCommand {
+        private final ArmyRef army;
+        private final ArmyRef targetArmy;
+
+        ArmyProtect(Faction faction, int lineNumber, String line, ArmyRef army, ArmyRef targetArmy) {
+            super(faction, lineNumber, line);
+            this.army = army;
+            this.targetArmy = targetArmy;
+        }
+
+        @Override
+        public boolean isFactionLocal() {
+            return false;
+        }
+
+        @Override
+        void check(CommandBudget budget) throws Exception {
+            budget.protect(getFaction(), army, targetArmy);
+        }
+
+        @Override
+        Object apply(Faction faction) throws Exception {
+            Army protector = army.require(faction);
+            if (targetArmy == null) {
+                protector.setState(Army.ArmyState.DEFENDING);
+                return null;
+            }
+
+            Army target = targetArmy.resolve(faction);
+            if (target == null) throw new Exception("Target not found: " + targetArmy);
+            target.reinforce(protector.getPopulation());
+            faction.removeArmy(protector);
+            return null;
+        }
+    }
+
+    static class ArmyRetreat extends WeeklyCommand {
+        private final ArmyRef army;
+
+        ArmyRetreat(Faction faction, int lineNumber, String line, ArmyRef army) {
+            super(faction, lineNumber, line);
+            this.army = army;
+        }
+
+        @Override
+        public boolean isFactionLocal() {
+            return false;
+        }
+
+        @Override
+        void check(CommandBudget budget) throws Exception {
+            budget.retreat(getFaction(), army);
+        }
+
+        @Override
+        Object apply(Faction faction) throws Exception {
+            army.require(faction).retreat();
+            return null;
+        }
+    }
+
+    static class BuildingConstruct extends WeeklyCommand {
+        private final BuildingDefinition definition;
+
+        BuildingConstruct(Faction faction, int lineNumber, String line, BuildingDefinition definition) {
+            super(faction, lineNumber, line);
+            this.definition = definition;
+        }
+
+        @Override
+        void check(CommandBudget budget) throws Exception {
+            budget.queueBuilding(getFaction(), definition);
+        }
+
+        @Override
+        Object apply(Faction faction) throws Exception {
+            if (!ActionValidator.canQueueBuilding(faction, definition)) {
+                throw new Exception("Cannot queue building: insufficient resources or already constructing");
+            }
+            return faction.queueBuilding(definition);
+        }
+    }
+
+    static class BuildingDemolish extends WeeklyCommand {
+        private final String building;
+
+        BuildingDemolish(Faction faction, int lineNumber, String line, String building) {
+            super(faction, lineNumber, line);
+            this.building = building;
+        }
+
+        @Override
+        void check(CommandBudget budget) throws Exception {
+            budget.demolishBuilding(getFaction(), building);
+        }
+
+        @Override
+        Object apply(Faction faction) throws Exception {
+            if (!ActionValidator.canDemolishBuilding(faction, building)) {
+                throw new Exception("Cannot demolish building: building not found or not complete");
+            }
+            faction.demolishBuilding(building);
+            return null;
+        }
+    }
+
+    static class BuildingPostpone extends WeeklyCommand {
+        private final String building;
+
+        BuildingPostpone(Faction faction, int lineNumber, String line, String building) {
+            super(faction, lineNumber, line);
+            this.building = building;
+        }
+
+        @Override
+        void check(CommandBudget budget) throws Exception {
+            budget.postponeBuilding(getFaction(), building);
+        }
+
+        @Override
+        Object apply(Faction faction) throws Exception {
+            faction.postponeBuilding(building);
+            return null;
+        }
+    }
+
+    static class ResearchField extends WeeklyCommand {
+        private final String field;
+        private final int investedAP;
+
+        ResearchField(Faction faction, int lineNumber, String line, String field, int investedAP) {
+            super(faction, lineNumber, line);
+            this.field = field;
+            this.investedAP = investedAP;
+        }
+
+        @Override
+        void check(CommandBudget budget) throws Exception {
+            if (investedAP < 0) {
+                throw new Exception("Invested AP cannot be negative");
+            }
+        }
+
+        @Override
+        Object apply(Faction faction) throws Exception {
+            faction.applyResearch(field, investedAP);
+            return null;
+        }
+    }
+
+}
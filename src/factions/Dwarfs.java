@@ -19,21 +19,18 @@ public class Dwarfs extends Faction {
     }
 
     @Override
-    protected void consumeFood() {
-        int weeklyConsumption = (population + getTotalArmiesPopulation()) / 3;
-        int currentFood = resources.getFood();
-
-        if (currentFood < weeklyConsumption) {
-            resources.setFood(0);
-            int populationToStarve = weeklyConsumption - currentFood;
-            population = Math.max(0, population - populationToStarve);
-        } else {
-            resources.setFood(currentFood - weeklyConsumption);
-        }
-
-        if (resources.getFood() < population && resources.getFood() > 0) {
-            population = resources.getFood();
-        }
+    protected int getFoodConsumptionDivisor() {
+        return 3;
+    }
+
+    @Override
+    protected boolean appliesConsumptionModifier() {
+        return false;
+    }
+
+    @Override
+    protected boolean capsPopulationToFood() {
+        return true;
     }
 
     @Override
@@ -1,20 +1,31 @@
 package game;
 
+import core.ActorRuntime;
+import core.CommandBatch;
+import core.CommandJournal;
 import core.Faction;
 import core.FactionRegistry;
+import core.MappedWorld;
 import core.SaveManager;
-import core.WeeklyChangeProcessor;
+import core.WeekCache;
+import core.WeekResolver;
 import core.WeeklyChangesLoader;
 import factions.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class GameMain {
 
     private static int weekNumber = 0;
+    private static ActorRuntime actorRuntime = new ActorRuntime(
+            Integer.getInteger("brombeer.weekThreads", Runtime.getRuntime().availableProcessors()));
+    private static WeekResolver weekResolver = new WeekResolver(actorRuntime);
+    private static MappedWorld mappedWorld;
 
     public static void main(String[] args) throws IOException {
 
@@ -30,14 +41,27 @@ public class GameMain {
 
         setupFactionDistances(registry);
 
-        weekNumber = SaveManager.getCurrentWeek();
+        try {
+            weekNumber = SaveManager.getCurrentWeek();
+        } catch (IOException e) {
+            System.out.println("Critical error: " + e.getMessage());
+            System.out.println("Move the damaged files out of saved/ to start a new game.");
+            System.exit(1);
+        }
+        String mappedPath = System.getProperty("brombeer.mappedWorld");
 
         try {
-            if (weekNumber > 0) {
+            if (mappedPath != null) {
+                mappedWorld = MappedWorld.open(new File(mappedPath), registry);
+            }
+            if (mappedWorld != null && mappedWorld.hasState() && mappedWorld.getWeek() == weekNumber) {
+                mappedWorld.restore(registry);
+                System.out.println("Loaded game from mapped world (Week " + weekNumber + ")");
+            } else if (weekNumber > 0) {
                 SaveManager.loadGameState(registry, weekNumber);
                 System.out.println("Loaded game from Week " + weekNumber);
             } else {
-                for (Faction faction : registry.getAllFactions().values()) {
+                for (Faction faction : registry.getFactionsInOrder()) {
                     faction.loadFactionData();
                 }
                 System.out.println("Loaded game from config (Week 0 - New Game)");
@@ -46,7 +70,7 @@ public class GameMain {
             System.out.println("Error loading game: " + e.getMessage());
             System.out.println("Initializing factions from config...");
             try {
-                for (Faction faction : registry.getAllFactions().values()) {
+                for (Faction faction : registry.getFactionsInOrder()) {
                     faction.loadFactionData();
                 }
             } catch (IOException e2) {
@@ -55,27 +79,41 @@ public class GameMain {
             }
         }
 
+        if (mappedWorld != null && (!mappedWorld.hasState() || mappedWorld.getWeek() != weekNumber)) {
+            commitMappedWorld(registry);
+        }
+
         Scanner scanner = new Scanner(System.in);
         printMenu();
 
         while (true) {
             String input = scanner.nextLine().trim().toLowerCase();
+            reportSaveFailures();
 
             switch (input) {
                 case "weekend":
+                    if (!resolveWeek(registry, weekNumber + 1)) {
+                        System.out.println("Weekend cancelled. Fix the weekly file and try again.\n");
+                        break;
+                    }
                     weekNumber++;
-                    resolveWeek(registry);
-                    SaveManager.saveGameState(registry, weekNumber);
-                    System.out.println("Week " + weekNumber + " complete. Game saved.\n");
+                    SaveManager.saveGameStateAsync(registry, weekNumber);
+                    commitMappedWorld(registry);
+                    System.out.println("Week " + weekNumber + " complete. Saving in the background.\n");
+                    break;
+
+                case "check":
+                    checkWeeklyFile(registry);
                     break;
 
                 case "newgame":
                     if (confirmAction("Are you sure? This will delete all saved games.")) {
                         SaveManager.deleteAllSaves();
                         weekNumber = 0;
-                        for (Faction faction : registry.getAllFactions().values()) {
+                        for (Faction faction : registry.getFactionsInOrder()) {
                             faction.loadFactionData();
                         }
+                        commitMappedWorld(registry);
                         System.out.println("New game started at Week 0.\n");
                     }
                     break;
@@ -96,6 +134,7 @@ public class GameMain {
                             SaveManager.restoreWeek(registry, week);
                             weekNumber = week;
                             SaveManager.loadGameState(registry, weekNumber);
+                            commitMappedWorld(registry);
                             System.out.println("Week " + week + " restored successfully.\n");
                         }
                     } catch (NumberFormatException e) {
@@ -105,11 +144,55 @@ public class GameMain {
                     }
                     break;
 
+                case "export":
+                    try {
+                        File exportDir = SaveManager.exportText(registry, weekNumber);
+                        System.out.println("Week " + weekNumber + " exported as text to " + exportDir.getPath() + "/\n");
+                    } catch (IOException e) {
+                        System.out.println("Error: " + e.getMessage() + "\n");
+                    }
+                    break;
+
+                case "import":
+                    if (confirmAction("Import Week " + weekNumber + " from export/? Current state will be overwritten.")) {
+                        try {
+                            SaveManager.importText(registry, weekNumber);
+                            commitMappedWorld(registry);
+                            System.out.println("Week " + weekNumber + " imported from text.\n");
+                        } catch (IOException e) {
+                            System.out.println("Error: " + e.getMessage() + "\n");
+                        }
+                    }
+                    break;
+
+                case "cache":
+                    printWeekCache();
+                    break;
+
+                case "flush":
+                    try {
+                        SaveManager.flushSaves();
+                        System.out.println("All saves written.\n");
+                    } catch (IOException e) {
+                        System.out.println("Error saving game: " + e.getMessage() + "\n");
+                    }
+                    break;
+
                 case "help":
                     printMenu();
                     break;
 
                 case "exit":
+                    actorRuntime.shutdown();
+                    try {
+                        SaveManager.flushSaves();
+                    } catch (IOException e) {
+                        System.out.println("Error saving game: " + e.getMessage());
+                    }
+                    SaveManager.awaitMaintenance();
+                    if (mappedWorld != null) {
+                        mappedWorld.close();
+                    }
                     System.out.println("Goodbye!");
                     return;
 
@@ -119,29 +202,80 @@ public class GameMain {
         }
     }
 
-    private static void resolveWeek(FactionRegistry registry) {
+    private static boolean resolveWeek(FactionRegistry registry, int week) throws IOException {
         File weekly = WeeklyChangesLoader.getLatestWeeklyFile();
+        CommandBatch batch = CommandBatch.compile(Collections.emptyList(), registry);
         if (weekly != null) {
             System.out.println("Processing: " + weekly.getName());
             try {
-                WeeklyChangeProcessor.apply(weekly, registry);
-            } catch (Exception e) {
+                batch = CommandBatch.compile(weekly, registry);
+            } catch (IOException e) {
                 System.err.println("Error processing weekly changes: " + e.getMessage());
             }
         } else {
             System.out.println("No weekly changes file found.");
         }
 
-        for (Faction faction : registry.getAllFactions().values()) {
-            faction.processWeek();
+        if (!batch.isValid()) {
+            printProblems(batch);
+            return false;
         }
 
+        long seed = ThreadLocalRandom.current().nextLong();
+        SaveManager.journalWeek(registry, week, seed, batch);
+        CommandJournal.replayWeek(registry, seed, batch, actorRuntime, weekResolver);
+
         System.out.println("Game state calculated.");
+        return true;
+    }
+
+    private static void checkWeeklyFile(FactionRegistry registry) {
+        File weekly = WeeklyChangesLoader.getLatestWeeklyFile();
+        if (weekly == null) {
+            System.out.println("No weekly changes file found.\n");
+            return;
+        }
+
+        try {
+            CommandBatch batch = CommandBatch.compile(weekly, registry);
+            if (batch.isValid()) {
+                System.out.println(weekly.getName() + ": " + batch.getCommands().size() + " commands OK.\n");
+            } else {
+                printProblems(batch);
+                System.out.println();
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading weekly changes: " + e.getMessage() + "\n");
+        }
+    }
+
+    private static void printProblems(CommandBatch batch) {
+        System.out.println("Weekly changes have " + batch.validate().size() + " problem(s):");
+        for (CommandBatch.Problem problem : batch.validate()) {
+            System.out.println("  - " + problem);
+        }
+    }
+
+    private static void reportSaveFailures() {
+        for (IOException failure : SaveManager.pollSaveFailures()) {
+            System.out.println("Error saving game: " + failure.getMessage());
+        }
+    }
+
+    private static void commitMappedWorld(FactionRegistry registry) {
+        if (mappedWorld == null) {
+            return;
+        }
+        try {
+            mappedWorld.commit(registry, weekNumber);
+        } catch (IOException e) {
+            System.out.println("Error updating mapped world: " + e.getMessage());
+        }
     }
 
     private static void printFactionStatus(FactionRegistry registry, int week) {
         System.out.println("\n========== Week " + week + " Status ==========");
-        for (Faction faction : registry.getAllFactions().values()) {
+        for (Faction faction : registry.getFactionsInOrder()) {
             System.out.println("\n" + faction.getName());
             System.out.println("  Population: " + faction.getPopulation());
             System.out.println("  Action Points: " + faction.getActionPoints());
@@ -153,6 +287,14 @@ public class GameMain {
         System.out.println();
     }
 
+    private static void printWeekCache() {
+        WeekCache cache = SaveManager.getWeekCache();
+        System.out.println("Week cache: " + cache.size() + " weeks, " + cache.getBytes() + " of "
+                + cache.getMaxBytes() + " bytes");
+        System.out.println("  Hits: " + cache.getHits() + ", misses: " + cache.getMisses()
+                + ", evictions: " + cache.getEvictions() + "\n");
+    }
+
     private static void listBackupWeeks() {
         List<Integer> weeks = SaveManager.listAvailableWeeks();
         if (weeks.isEmpty()) {
@@ -176,9 +318,14 @@ public class GameMain {
     private static void printMenu() {
         System.out.println("\n========== GAME COMMANDS ==========");
         System.out.println("weekend      - Resolve the current week and save");
+        System.out.println("check        - Validate the latest weekly changes file");
         System.out.println("status       - View all faction statuses");
         System.out.println("backups      - List available backup weeks");
         System.out.println("restore      - Restore from a previous week");
+        System.out.println("export       - Write the current week as text to export/");
+        System.out.println("import       - Load the current week from text in export/");
+        System.out.println("flush        - Wait until background saves are written");
+        System.out.println("cache        - Show week cache statistics");
         System.out.println("newgame      - Start a new game (deletes saves)");
         System.out.println("help         - Show this menu");
         System.out.println("exit         - Exit the game");
@@ -0,0 +1,81 @@
+package test;
+
+import core.*;
+import factions.Dwarfs;
+import factions.Humans;
+import factions.Ogres;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class BinarySnapshotTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Binary Snapshot Test ===\n");
+
+        FactionRegistry original = createRegistry();
+        for (Faction faction : original.getFactionsInOrder()) {
+            faction.loadFactionData();
+        }
+
+        Faction dwarfs = original.getFaction("dwarfs");
+        dwarfs.queueBuilding("Farm");
+        dwarfs.createArmy("Iron Guard", 120);
+        dwarfs.getResearch().addProgress("mining", 4);
+        dwarfs.getResearch().recordResult("mining", ResearchResult.DISCOVERY);
+        dwarfs.getResources().set("food", 5_000_000_000L);
+        Faction ogres = original.getFaction("ogres");
+        ogres.createArmy("Raiders", 80);
+        ogres.getArmy("Raiders").setTarget("humans", 2);
+
+        for (int week = 0; week < 3; week++) {
+            for (Faction faction : original.getFactionsInOrder()) {
+                faction.processWeek();
+            }
+        }
+
+        File snapshot = new File("saved/test_world.week_3");
+        BinarySnapshot.save(original, 3, snapshot);
+        System.out.println("Snapshot size: " + snapshot.length() + " bytes");
+
+        FactionRegistry restored = createRegistry();
+        int week = BinarySnapshot.load(restored, snapshot);
+
+        boolean passed = week == 3 && BinarySnapshot.isSnapshot(snapshot);
+        for (Faction expected : original.getFactionsInOrder()) {
+            Faction actual = restored.getFaction(expected.getName());
+            String expectedText = render(expected);
+            String actualText = render(actual);
+            if (!expectedText.equals(actualText)
+                    || expected.getMaxConcurrentBuildings() != actual.getMaxConcurrentBuildings()
+                    || !expected.getResearch().getProgressView().equals(actual.getResearch().getProgressView())) {
+                System.out.println("Mismatch for " + expected.getName() + ":\n" + expectedText + "\n---\n" + actualText);
+                passed = false;
+            }
+        }
+
+        if (passed) {
+            System.out.println("\n✓ Test PASSED: Binary snapshot round-trips world state");
+        } else {
+            System.out.println("\n✗ Test FAILED: Binary snapshot lost state");
+        }
+
+        snapshot.delete();
+    }
+
+    private static FactionRegistry createRegistry() {
+        FactionRegistry registry = new FactionRegistry();
+        registry.registerFaction("dwarfs", new Dwarfs("dwarfs"));
+        registry.registerFaction("humans", new Humans("humans"));
+        registry.registerFaction("ogres", new Ogres("ogres"));
+        return registry;
+    }
+
+    private static String render(Faction faction) throws IOException {
+        File file = new File("saved/test_render.txt");
+        FactionStateFormatter.save(faction, file);
+        String text = new String(Files.readAllBytes(file.toPath()));
+        file.delete();
+        return text;
+    }
+}
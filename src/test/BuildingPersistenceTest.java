@@ -21,17 +21,14 @@ public class BuildingPersistenceTest {
         BuildingDefinition quarryDef = BuildingDefinition.get("Quarry");
 
         if (farmDef != null) {
-            Building farm1 = farmDef.createCompleted("Farm");
-            Building farm2 = farmDef.createCompleted("Farm");
-            dwarfs.getBuildings().put(farm1.getId(), farm1);
-            dwarfs.getBuildings().put(farm2.getId(), farm2);
+            dwarfs.getBuildings().add(farmDef, 2);
             System.out.println("Added 2 completed farms");
         }
 
         System.out.println("\nAfter adding buildings:");
         System.out.println("Completed Buildings: " + dwarfs.getBuildings().size());
-        for (Building b : dwarfs.getBuildings().values()) {
-            System.out.println("  - " + b.getType());
+        for (BuildingStore.Entry entry : dwarfs.getBuildings().getEntries()) {
+            System.out.println("  - " + entry.getType() + " x" + entry.getCount());
         }
 
         System.out.println("Constructing Buildings: " + dwarfs.getBuildingQueue().size());
@@ -51,8 +48,8 @@ public class BuildingPersistenceTest {
 
         System.out.println("\n=== After Loading ===");
         System.out.println("Completed Buildings: " + dwarfs2.getBuildings().size());
-        for (Building b : dwarfs2.getBuildings().values()) {
-            System.out.println("  - " + b.getType() + " (ID: " + b.getId() + ")");
+        for (BuildingStore.Entry entry : dwarfs2.getBuildings().getEntries()) {
+            System.out.println("  - " + entry.getType() + " x" + entry.getCount());
         }
 
         System.out.println("Constructing Buildings: " + dwarfs2.getBuildingQueue().size());
@@ -0,0 +1,68 @@
+package test;
+
+import core.*;
+
+import java.io.IOException;
+import java.util.List;
+
+public class BulkEconomyTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Bulk Economy Test ===\n");
+
+        int factionCount = 9000;
+        int weeks = 15;
+
+        FactionRegistry reference = createWorld(factionCount);
+        FactionRegistry bulk = createWorld(factionCount);
+
+        WeekResolver resolver = new WeekResolver();
+        for (int week = 0; week < weeks; week++) {
+            resolver.resolve(reference);
+        }
+
+        BulkEconomy economy = new BulkEconomy(bulk.getFactionsInOrder(), 4);
+        long start = System.nanoTime();
+        economy.runWeeks(weeks);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        economy.store();
+        economy.shutdown();
+
+        int mismatches = 0;
+        List<Faction> expected = reference.getFactionsInOrder();
+        List<Faction> actual = bulk.getFactionsInOrder();
+        for (int i = 0; i < expected.size(); i++) {
+            Faction e = expected.get(i);
+            Faction a = actual.get(i);
+            if (e.getPopulation() != a.getPopulation()
+                    || !e.getResources().getAll().equals(a.getResources().getAll())
+                    || e.getBuildings().size() != a.getBuildings().size()
+                    || e.getBuildingQueue().size() != a.getBuildingQueue().size()
+                    || e.getActionPoints() != a.getActionPoints()
+                    || e.getMight() != a.getMight()) {
+                if (mismatches < 5) {
+                    System.out.println("Mismatch: " + e.getName() + " expected pop=" + e.getPopulation() + " " + e.getResources()
+                            + " actual pop=" + a.getPopulation() + " " + a.getResources());
+                }
+                mismatches++;
+            }
+        }
+
+        System.out.println("Simulated " + factionCount + " factions for " + weeks + " weeks in " + elapsedMillis + " ms");
+        if (mismatches == 0) {
+            System.out.println("\n✓ Test PASSED: Bulk economy matches Faction.processWeek");
+        } else {
+            System.out.println("\n✗ Test FAILED: " + mismatches + " factions differ");
+        }
+    }
+
+    private static FactionRegistry createWorld(int factionCount) throws IOException {
+        return TestWorld.createWorld(factionCount, (faction, i) -> {
+            if (i % 4 == 0) {
+                faction.createArmy("Guard", 50 + i % 700);
+            }
+            if (i % 5 == 0) {
+                faction.queueBuilding(i % 3 == 2 ? "Quarry" : "Farm");
+            }
+        });
+    }
+}
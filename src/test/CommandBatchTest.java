@@ -0,0 +1,203 @@
+package test;
+
+import core.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class CommandBatchTest {
+    private static final String[] ARMY_NAMES = {"Guard", "Raiders", "Iron_Host", "Scouts"};
+    private static final String[] BUILDINGS = {"Farm", "Lumbermill", "Quarry"};
+    private static final String[] FIELDS = {"mining", "farming", "warfare"};
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Command Batch Test ===\n");
+
+        FactionRegistry sequential = createWorld(24);
+        FactionRegistry parallel = createWorld(24);
+        ActorRuntime runtime = new ActorRuntime(4);
+        WeekResolver resolver = new WeekResolver();
+
+        Random random = new Random(11);
+        int generated = 0;
+        int commandCount = 0;
+        PrintStream err = System.err;
+        ByteArrayOutputStream applyErrors = new ByteArrayOutputStream();
+        for (int week = 1; week <= 8; week++) {
+            List<String> lines = createWeek(sequential, random);
+            generated += CommandBatch.compile(lines, sequential).getCommands().size();
+            lines = dropProblems(lines, sequential);
+            commandCount += CommandBatch.compile(lines, sequential).getCommands().size();
+            long seed = random.nextLong();
+            System.setErr(new PrintStream(applyErrors, true));
+            try {
+                CommandJournal.replayWeek(sequential, seed, lines, null, resolver);
+                CommandJournal.replayWeek(parallel, seed, lines, runtime, resolver);
+            } finally {
+                System.setErr(err);
+            }
+        }
+        runtime.shutdown();
+
+        int mismatches = 0;
+        for (Faction faction : sequential.getFactionsInOrder()) {
+            byte[] expected = TestWorld.render(faction);
+            byte[] actual = TestWorld.render(parallel.getFaction(faction.getName()));
+            if (!Arrays.equals(expected, actual)) {
+                System.out.println("Mismatch: " + faction.getName());
+                mismatches++;
+            }
+        }
+
+        int failedCommands = applyErrors.toString().split("Error processing", -1).length - 1;
+        boolean idsInFileOrder = checkArmyIdOrder();
+
+        System.out.println("Applied " + commandCount + " of " + generated + " generated commands to "
+                + sequential.getFactionsInOrder().size() + " factions over 8 weeks");
+        System.out.println("Commands that failed while applying: " + failedCommands);
+        if (failedCommands != 0 || commandCount < generated * 9 / 10) {
+            System.out.println("\n✗ Test FAILED: the weekly batches did not apply cleanly");
+        } else if (!idsInFileOrder) {
+            System.out.println("\n✗ Test FAILED: army ids do not follow the weekly file order");
+        } else if (mismatches == 0) {
+            System.out.println("\n✓ Test PASSED: Parallel command batches match sequential application");
+        } else {
+            System.out.println("\n✗ Test FAILED: " + mismatches + " factions differ");
+        }
+    }
+
+    private static List<String> dropProblems(List<String> lines, FactionRegistry registry) {
+        CommandBatch batch = CommandBatch.compile(lines, registry);
+        while (!batch.isValid()) {
+            Set<Integer> invalid = new HashSet<>();
+            for (CommandBatch.Problem problem : batch.validate()) {
+                invalid.add(problem.getLineNumber());
+            }
+            List<String> kept = new ArrayList<>();
+            for (int i = 0; i < lines.size(); i++) {
+                if (!invalid.contains(i + 1)) {
+                    kept.add(lines.get(i));
+                }
+            }
+            lines = kept;
+            batch = CommandBatch.compile(lines, registry);
+        }
+        return lines;
+    }
+
+    private static boolean checkArmyIdOrder() throws IOException {
+        List<String> lines = Arrays.asList(
+                "FACTION humans_1", "ARMY_CREATE Guard, 5",
+                "FACTION dwarfs_0", "ARMY_CREATE Raiders, 5",
+                "FACTION humans_1", "ARMY_CREATE Scouts, 5",
+                "FACTION dwarfs_0", "ARMY_CREATE Iron_Host, 5");
+        boolean ordered = true;
+        for (int threads = 0; threads <= 4; threads++) {
+            FactionRegistry registry = createWorld(3);
+            ActorRuntime runtime = threads > 0 ? new ActorRuntime(threads) : null;
+            int firstId = registry.getArmyIds().getNextId();
+            CommandBatch.compile(lines, registry).apply(runtime);
+            if (runtime != null) {
+                runtime.shutdown();
+            }
+
+            Faction humans = registry.getFaction("humans_1");
+            Faction dwarfs = registry.getFaction("dwarfs_0");
+            int[] ids = {
+                    humans.getArmy("Guard").getId(), dwarfs.getArmy("Raiders").getId(),
+                    humans.getArmy("Scouts").getId(), dwarfs.getArmy("Iron_Host").getId()};
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != firstId + i) {
+                    System.out.println("Army ids with " + threads + " threads: " + Arrays.toString(ids));
+                    ordered = false;
+                    break;
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private static List<String> createWeek(FactionRegistry registry, Random random) {
+        List<Faction> factions = registry.getFactionsInOrder();
+        List<String> lines = new ArrayList<>();
+        Map<Faction, List<String>> armies = new HashMap<>();
+        Set<Faction> constructing = new HashSet<>();
+        for (int block = 0; block < factions.size() * 2; block++) {
+            Faction faction = factions.get(random.nextInt(factions.size()));
+            List<String> known = armies.computeIfAbsent(faction, f -> {
+                List<String> names = new ArrayList<>();
+                for (Army army : f.getArmies().values()) {
+                    names.add(army.getName());
+                }
+                return names;
+            });
+            lines.add("FACTION " + faction.getName());
+            for (int i = random.nextInt(5); i >= 0; i--) {
+                String army = known.isEmpty() ? null : known.get(random.nextInt(known.size()));
+                int kind = random.nextInt(6);
+                if (army == null && kind <= 3) {
+                    kind = 0;
+                }
+                switch (kind) {
+                    case 0:
+                        String name = ARMY_NAMES[random.nextInt(ARMY_NAMES.length)];
+                        lines.add("ARMY_CREATE " + name + ", " + (1 + random.nextInt(100)));
+                        if (!known.contains(name)) {
+                            known.add(name);
+                        }
+                        break;
+                    case 1:
+                        Faction target = factions.get(random.nextInt(factions.size() - 1));
+                        if (target == faction) {
+                            target = factions.get(factions.size() - 1);
+                        }
+                        lines.add("ARMY_ATTACK " + army + ", " + target.getName());
+                        break;
+                    case 2:
+                        String protectedArmy = known.get(random.nextInt(known.size()));
+                        if (random.nextBoolean() || protectedArmy.equals(army)) {
+                            lines.add("ARMY_PROTECT " + army + ", " + faction.getName());
+                        } else {
+                            lines.add("ARMY_PROTECT " + army + ", " + protectedArmy);
+                            known.remove(army);
+                        }
+                        break;
+                    case 3:
+                        Army existing = faction.getArmy(army);
+                        lines.add("ARMY_RETREAT " + (existing != null ? "#" + existing.getId() : army));
+                        break;
+                    case 4:
+                        lines.add("RESEARCH " + FIELDS[random.nextInt(FIELDS.length)] + ", " + random.nextInt(3));
+                        break;
+                    default:
+                        if (faction.getBuildingQueueView().isEmpty() && constructing.add(faction)) {
+                            lines.add("BUILDING_CONSTRUCT " + BUILDINGS[random.nextInt(BUILDINGS.length)]);
+                        } else {
+                            lines.add("RESEARCH " + FIELDS[random.nextInt(FIELDS.length)]);
+                        }
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static FactionRegistry createWorld(int factionCount) throws IOException {
+        FactionRegistry registry = TestWorld.createWorld(factionCount);
+        List<Faction> factions = registry.getFactionsInOrder();
+        for (int i = 0; i < factions.size(); i++) {
+            for (int j = i + 1; j < factions.size(); j++) {
+                registry.setDistance(factions.get(i).getName(), factions.get(j).getName(), 1 + (j - i) % 4);
+            }
+        }
+        return registry;
+    }
+}
@@ -0,0 +1,121 @@
+package test;
+
+import core.CommandTokenizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class CommandTokenizerTest {
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Command Tokenizer Test ===\n");
+
+        String[] cases = {
+                "ARMY_CREATE Guard, 10",
+                "ARMY_CREATE Guard,10",
+                "ARMY_CREATE Guard ,10",
+                "ARMY_CREATE Guard , 10",
+                "a,,b",
+                "a, ,b",
+                "a ,,b",
+                ",a",
+                ", a",
+                "a,",
+                "a ,",
+                "a, ",
+                "a,,",
+                "a , , ",
+                "a\tb\u000Bc",
+                "a\u0001b",
+                "  RESEARCH farming 2  ",
+                ",",
+                " , ",
+                "# comment",
+                "  # indented comment",
+                "",
+                "   ",
+        };
+        for (String line : cases) {
+            compare(line);
+        }
+
+        Random random = new Random(5);
+        String alphabet = "ab, \t,#\u000B\u0001x";
+        for (int i = 0; i < 100_000; i++) {
+            StringBuilder line = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int k = 0; k < length; k++) {
+                line.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            compare(line.toString());
+        }
+
+        String text = "FACTION a b\r\nc,d\re, f\n\n# x\r\n  g ,  \r";
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            file.append(text);
+        }
+        List<String> lines = new BufferedReader(new StringReader(file.toString())).lines().collect(Collectors.toList());
+        CommandTokenizer streamed = new CommandTokenizer(new StringReader(file.toString()));
+        CommandTokenizer listed = new CommandTokenizer(lines);
+        int commands = 0;
+        while (true) {
+            boolean more = streamed.next();
+            if (more != listed.next()) {
+                System.out.println("Reader and list tokenizers stopped at different lines");
+                failures++;
+                break;
+            }
+            if (!more) {
+                break;
+            }
+            commands++;
+            if (streamed.getLineNumber() != listed.getLineNumber()
+                    || !streamed.getLine().equals(listed.getLine())
+                    || !Arrays.equals(streamed.copyTokens(), listed.copyTokens())) {
+                System.out.println("Reader and list tokenizers differ at line " + streamed.getLineNumber());
+                failures++;
+                break;
+            }
+        }
+        if (commands != 4 * 3000 || streamed.getLineNumber() != lines.size()) {
+            System.out.println("Read " + commands + " commands over " + streamed.getLineNumber() + " lines");
+            failures++;
+        }
+
+        System.out.println("Compared " + (cases.length + 100_000) + " lines with the regex split");
+        if (failures == 0) {
+            System.out.println("\n✓ Test PASSED: Tokenizer matches the ',\\s*|\\s+' split");
+        } else {
+            System.out.println("\n✗ Test FAILED: " + failures + " lines tokenized differently");
+        }
+    }
+
+    private static void compare(String raw) throws IOException {
+        String line = raw.trim();
+        List<String> expected = null;
+        if (!line.isEmpty() && !line.startsWith("#")) {
+            String[] parts = line.split(",\\s*|\\s+");
+            if (parts.length > 0) {
+                expected = Arrays.asList(parts);
+            }
+        }
+
+        CommandTokenizer tokens = new CommandTokenizer(Collections.singletonList(raw));
+        List<String> actual = tokens.next() ? Arrays.asList(tokens.copyTokens()) : null;
+        if (!Objects.equals(expected, actual)) {
+            if (failures < 10) {
+                System.out.println("[" + raw + "] split " + expected + ", tokenizer " + actual);
+            }
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package test;
+
+import core.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CommandValidationTest {
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Command Validation Test ===\n");
+
+        FactionRegistry registry = createWorld();
+        Faction dwarfs = registry.getFaction("dwarfs_0");
+
+        expect(registry, "army over population", 3, "Cannot create army: insufficient population",
+                "FACTION dwarfs_0",
+                "ARMY_CREATE Guard, " + dwarfs.getPopulation() / 2,
+                "ARMY_CREATE Horde, " + (dwarfs.getPopulation() / 2 + 1));
+
+        Faction humans = registry.getFaction("humans_1");
+        humans.setMaxConcurrentBuildings(1);
+        expect(registry, "queue limit", 3, "Cannot queue building: insufficient resources or already constructing",
+                "FACTION humans_1",
+                "BUILDING_CONSTRUCT Lumbermill",
+                "BUILDING_CONSTRUCT Quarry");
+
+        humans.setMaxConcurrentBuildings(20);
+        int farms = BuildingDefinition.get("Farm").getMaxConcurrentOfType()
+                + humans.getTraits().getMaxBuildingTypeLimit("Farm") - humans.getBuildings().count("Farm");
+        List<String> lines = new ArrayList<>();
+        lines.add("FACTION humans_1");
+        for (int i = 0; i <= farms; i++) {
+            lines.add("BUILDING_CONSTRUCT Farm");
+        }
+        expect(registry, "per-type limit", farms + 2, "Cannot build more Farm",
+                lines.toArray(new String[0]));
+
+        expect(registry, "attack with a merged army", 5, "Army not found: Scouts",
+                "FACTION dwarfs_0",
+                "ARMY_CREATE Scouts, 10",
+                "ARMY_CREATE Guard, 10",
+                "ARMY_PROTECT Scouts, Guard",
+                "ARMY_ATTACK Scouts, humans_1");
+
+        dwarfs.queueBuilding("Lumbermill");
+        expect(registry, "postpone of an unknown id", 3, "Building not found in queue: #999",
+                "FACTION dwarfs_0",
+                "BUILDING_POSTPONE #" + dwarfs.getBuildingQueueView().get(0).getId(),
+                "BUILDING_POSTPONE #999");
+
+        expect(registry, "valid batch", 0, null,
+                "FACTION dwarfs_0",
+                "ARMY_CREATE Guard, 10",
+                "ARMY_ATTACK Guard, humans_1",
+                "FACTION humans_1",
+                "BUILDING_CONSTRUCT Farm",
+                "RESEARCH farming 2");
+
+        if (failures == 0) {
+            System.out.println("\n✓ Test PASSED: Invalid batches are refused at the failing line without changing the world");
+        } else {
+            System.out.println("\n✗ Test FAILED: " + failures + " validation checks failed");
+        }
+    }
+
+    private static void expect(FactionRegistry registry, String name, int line, String message, String... lines)
+            throws IOException {
+        List<byte[]> before = renderAll(registry);
+        int nextArmyId = registry.getArmyIds().getNextId();
+        int nextBuildingId = registry.getBuildingIds().getNextId();
+
+        CommandBatch batch = CommandBatch.compile(Arrays.asList(lines), registry);
+        List<CommandBatch.Problem> problems = batch.validate();
+
+        boolean untouched = nextArmyId == registry.getArmyIds().getNextId()
+                && nextBuildingId == registry.getBuildingIds().getNextId();
+        List<byte[]> after = renderAll(registry);
+        for (int i = 0; i < before.size(); i++) {
+            untouched &= Arrays.equals(before.get(i), after.get(i));
+        }
+
+        boolean matched = message == null
+                ? problems.isEmpty()
+                : problems.size() == 1 && problems.get(0).getLineNumber() == line
+                        && problems.get(0).getMessage().startsWith(message);
+        System.out.println((matched && untouched ? "ok    " : "FAIL  ") + name + ": " + problems);
+        if (!matched || !untouched) {
+            failures++;
+        }
+    }
+
+    private static List<byte[]> renderAll(FactionRegistry registry) throws IOException {
+        List<byte[]> rendered = new ArrayList<>();
+        for (Faction faction : registry.getFactionsInOrder()) {
+            rendered.add(TestWorld.render(faction));
+        }
+        return rendered;
+    }
+
+    private static FactionRegistry createWorld() throws IOException {
+        FactionRegistry registry = TestWorld.createWorld(3, (faction, i) -> {
+            faction.getResources().setWood(1_000_000);
+            faction.getResources().setStone(1_000_000);
+            faction.getResources().setFood(1_000_000);
+        });
+        registry.setDistance("dwarfs_0", "humans_1", 2);
+        return registry;
+    }
+}
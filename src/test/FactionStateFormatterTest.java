@@ -0,0 +1,134 @@
+package test;
+
+import core.*;
+import factions.Dwarfs;
+import factions.Humans;
+import factions.Ogres;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class FactionStateFormatterTest {
+    private static final String[] ARMY_NAMES = {"Iron Guard", "Raiders", "Big Army", "Scouts", "Vanguard"};
+    private static final String[] BUILDINGS = {"Farm", "Quarry", "Lumbermill"};
+    private static final String MUTATIONS = ",=[]():#- \n\r\t0123456789aZNone";
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Faction State Formatter Test ===\n");
+
+        File file = new File("saved/test_formatter.txt");
+        int roundTrips = 0;
+        int mismatches = 0;
+        int unexpected = 0;
+        List<Faction> factions = new ArrayList<>();
+        StringBuilder documents = new StringBuilder();
+
+        for (int seed = 1; seed <= 30; seed++) {
+            Random random = new Random(seed);
+            Faction original = createFaction(seed % 3);
+            original.loadFactionData();
+            randomize(original, random);
+
+            String saved = render(original, file);
+            factions.add(original);
+            documents.append(documents.length() == 0 ? "" : "\n").append(saved);
+            String expected = saved.replaceFirst("ActionPoints=\\d+", "");
+            Faction loaded = createFaction(seed % 3);
+            loaded.loadFactionData();
+            FactionStateFormatter.load(loaded, file);
+            String reloaded = render(loaded, file).replaceFirst("ActionPoints=\\d+", "");
+            roundTrips++;
+            if (!expected.equals(reloaded)) {
+                System.out.println("Mismatch for seed " + seed + ":\n" + expected + "\n---\n" + reloaded);
+                mismatches++;
+            }
+
+            for (int i = 0; i < 50; i++) {
+                StringBuilder text = new StringBuilder(saved);
+                for (int m = 0; m < 3; m++) {
+                    int position = random.nextInt(text.length());
+                    if (random.nextBoolean()) {
+                        text.deleteCharAt(position);
+                    } else {
+                        text.insert(position, MUTATIONS.charAt(random.nextInt(MUTATIONS.length())));
+                    }
+                }
+                Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+                try {
+                    FactionStateFormatter.load(createFaction(seed % 3), file);
+                } catch (IllegalArgumentException e) {
+                } catch (RuntimeException e) {
+                    System.out.println("Unexpected " + e + " for:\n" + text);
+                    unexpected++;
+                }
+            }
+        }
+        StringWriter combined = new StringWriter();
+        FactionStateFormatter.writeAll(factions, combined);
+        boolean streamed = combined.toString().equals(documents.toString());
+        file.delete();
+
+        System.out.println("Round trips: " + roundTrips + ", mismatches: " + mismatches + ", unexpected failures: " + unexpected);
+        System.out.println("Combined stream matches individual saves: " + streamed);
+        if (mismatches == 0 && unexpected == 0 && streamed) {
+            System.out.println("\n✓ Test PASSED: Faction text saves round-trip through the parser");
+        } else {
+            System.out.println("\n✗ Test FAILED: Faction text parser lost state or failed unexpectedly");
+        }
+    }
+
+    private static Faction createFaction(int kind) {
+        switch (kind) {
+            case 0:
+                return new Dwarfs("dwarfs");
+            case 1:
+                return new Humans("humans");
+            default:
+                return new Ogres("ogres");
+        }
+    }
+
+    private static void randomize(Faction faction, Random random) {
+        for (int i = 0; i < ResourceType.count(); i++) {
+            faction.getResources().set(i, random.nextInt(5) == 0 ? 5_000_000_000L + random.nextInt(1000) : random.nextInt(100_000));
+        }
+        int armies = random.nextInt(ARMY_NAMES.length + 1);
+        for (int i = 0; i < armies; i++) {
+            faction.createArmy(ARMY_NAMES[i], 1 + random.nextInt(500));
+            Army army = faction.getArmy(ARMY_NAMES[i]);
+            if (army != null && random.nextBoolean()) {
+                army.setTarget(random.nextBoolean() ? "humans" : "ogres", 1 + random.nextInt(5));
+            }
+        }
+        int buildings = random.nextInt(4);
+        for (int i = 0; i < buildings; i++) {
+            try {
+                faction.queueBuilding(BUILDINGS[random.nextInt(BUILDINGS.length)]);
+            } catch (IllegalStateException | IllegalArgumentException e) {
+            }
+        }
+        int weeks = random.nextInt(4);
+        for (int i = 0; i < weeks; i++) {
+            faction.processWeek();
+        }
+        for (String trait : faction.getTraits().getTraitsView().keySet().toArray(new String[0])) {
+            if (random.nextBoolean()) {
+                faction.setTrait(trait, 1 + random.nextInt(20));
+            }
+        }
+        if (random.nextBoolean()) {
+            faction.setFeatures("Seed " + random.nextInt(1000) + " quirk\nLoves tunnels, hates rain");
+        }
+    }
+
+    private static String render(Faction faction, File file) throws IOException {
+        FactionStateFormatter.save(faction, file);
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,79 @@
+package test;
+
+import core.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+public class FastForwardTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Fast Forward Test ===\n");
+
+        int weeks = 10000;
+        FactionRegistry reference = createWorld(12);
+        FactionRegistry fast = createWorld(12);
+
+        long start = System.nanoTime();
+        for (Faction faction : reference.getFactionsInOrder()) {
+            for (int week = 0; week < weeks; week++) {
+                faction.processWeek();
+            }
+        }
+        long steppedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        long skipped = 0;
+        for (Faction faction : fast.getFactionsInOrder()) {
+            skipped += FastForward.fastForward(faction, weeks);
+        }
+        long fastMillis = (System.nanoTime() - start) / 1_000_000;
+
+        int mismatches = 0;
+        List<Faction> expected = reference.getFactionsInOrder();
+        List<Faction> actual = fast.getFactionsInOrder();
+        for (int i = 0; i < expected.size(); i++) {
+            Faction e = expected.get(i);
+            Faction a = actual.get(i);
+            if (!Arrays.equals(TestWorld.render(e), TestWorld.render(a)) || e.getMight() != a.getMight()) {
+                if (mismatches < 5) {
+                    System.out.println("Mismatch: " + e.getName() + " expected pop=" + e.getPopulation() + " " + e.getResources()
+                            + " actual pop=" + a.getPopulation() + " " + a.getResources());
+                }
+                mismatches++;
+            }
+        }
+
+        System.out.println("Stepped " + expected.size() + " factions for " + weeks + " weeks in " + steppedMillis + " ms");
+        System.out.println("Fast-forwarded them in " + fastMillis + " ms, skipping " + skipped + " faction-weeks");
+        if (mismatches == 0 && skipped > 0) {
+            System.out.println("\n✓ Test PASSED: Fast-forward matches week-by-week processing");
+        } else {
+            System.out.println("\n✗ Test FAILED: " + mismatches + " factions differ, " + skipped + " weeks skipped");
+        }
+    }
+
+    private static FactionRegistry createWorld(int factionCount) throws IOException {
+        return TestWorld.createWorld(factionCount, (faction, i) -> {
+            Resources resources = faction.getResources();
+            switch (i / 3) {
+                case 1:
+                    resources.setWood(Long.MAX_VALUE - 5000);
+                    resources.setStone(Long.MAX_VALUE / 2);
+                    break;
+                case 2:
+                    resources.setFood(resources.getFood() * 40);
+                    faction.createArmy("Guard", faction.getPopulation() / 3);
+                    break;
+                case 3:
+                    faction.queueBuilding(i % 3 == 2 ? "Quarry" : "Lumbermill");
+                    Army army = faction.createArmy("Raiders", faction.getPopulation() / 4);
+                    if (army != null) {
+                        army.setTarget("dwarfs_0", 6);
+                    }
+                    break;
+                default:
+            }
+        });
+    }
+}
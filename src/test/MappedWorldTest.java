@@ -0,0 +1,90 @@
+package test;
+
+import core.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+public class MappedWorldTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Mapped World Test ===\n");
+
+        File directory = Files.createTempDirectory("mapped_world").toFile();
+        File file = new File(directory, "world.map");
+        FactionRegistry live = createWorld();
+        int failures = 0;
+
+        MappedWorld world = MappedWorld.open(file, live);
+        world.commit(live, 1);
+        world.close();
+        long initialSize = file.length();
+        failures += restart(file, live, 1, "restart");
+
+        Faction dwarfs = live.getFaction("dwarfs_0");
+        for (int i = 0; i < 20; i++) {
+            dwarfs.createArmy("Company_" + i, 5);
+        }
+        String longName = "Übermäßig_lange_Armee_" + "x".repeat(150);
+        Army army = live.getFaction("humans_1").createArmy(longName, 7);
+        army.setTarget("ogres_2_" + "y".repeat(120), 3);
+        for (Faction faction : live.getFactionsInOrder()) {
+            faction.processWeek();
+        }
+
+        world = MappedWorld.open(file, live);
+        world.commit(live, 2);
+        world.close();
+        long grownSize = file.length();
+        failures += restart(file, live, 2, "relayout");
+
+        if (new File(directory, "world.map.tmp").exists()) {
+            System.out.println("Relayout left world.map.tmp behind");
+            failures++;
+        }
+
+        for (File leftover : directory.listFiles()) {
+            leftover.delete();
+        }
+        directory.delete();
+
+        System.out.println("Mapped file grew from " + initialSize + " to " + grownSize + " bytes on relayout");
+        if (failures == 0 && grownSize > initialSize) {
+            System.out.println("\n✓ Test PASSED: Mapped world round-trips through commit, relayout and restart");
+        } else {
+            System.out.println("\n✗ Test FAILED: " + failures + " mapped world checks failed");
+        }
+    }
+
+    private static int restart(File file, FactionRegistry expected, int week, String step) throws IOException {
+        FactionRegistry restored = TestWorld.createWorld(expected.getFactionsInOrder().size());
+        MappedWorld world = MappedWorld.open(file, restored);
+        try {
+            if (!world.hasState() || world.getWeek() != week || world.restore(restored) != week) {
+                System.out.println("Mapped world did not reopen at week " + week + " after " + step);
+                return 1;
+            }
+        } finally {
+            world.close();
+        }
+
+        int mismatches = 0;
+        for (Faction faction : expected.getFactionsInOrder()) {
+            if (!Arrays.equals(TestWorld.render(faction), TestWorld.render(restored.getFaction(faction.getName())))) {
+                System.out.println("Mismatch after " + step + ": " + faction.getName());
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    private static FactionRegistry createWorld() throws IOException {
+        return TestWorld.createWorld(6, (faction, i) -> {
+            faction.createArmy("Guard", 20 + i);
+            if (i % 2 == 0) {
+                faction.queueBuilding("Lumbermill");
+            }
+        });
+    }
+}
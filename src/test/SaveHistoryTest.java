@@ -0,0 +1,132 @@
+package test;
+
+import core.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class SaveHistoryTest {
+    private static final String[] FIELDS = {"mining", "farming", "warfare"};
+    private static final int FACTIONS = 6;
+
+    private static final Map<Integer, byte[]> played = new HashMap<>();
+    private static final Random random = new Random(17);
+    private static final WeekResolver resolver = new WeekResolver();
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Save History Test ===\n");
+
+        if (new File("backups").exists() || new File("export").exists()) {
+            System.out.println("\n✗ Test FAILED: run from a directory without backups/ or export/");
+            return;
+        }
+
+        FactionRegistry live = TestWorld.createWorld(FACTIONS);
+        SaveManager.deleteAllSaves();
+        SaveManager.saveGameState(live, 0);
+        played.put(0, Files.readAllBytes(SaveManager.getSnapshotFile(0).toPath()));
+
+        for (int week = 1; week <= 24; week++) {
+            play(live, week, week >= 9 && week <= 14);
+            if (week == 18) {
+                live.getFaction("dwarfs_0").getResources().setWood(123_456);
+                SaveManager.exportText(live, 18);
+                SaveManager.importText(live, 18);
+                played.put(18, Files.readAllBytes(SaveManager.getSnapshotFile(18).toPath()));
+            }
+        }
+
+        restore(7, "non-checkpoint week");
+        restore(13, "idle stretch");
+        restore(21, "week after an import base");
+
+        SaveManager.getWeekCache().clear();
+        SaveManager.restoreWeek(live, 22);
+        SaveManager.loadGameState(live, 22);
+        for (int week = 23; week <= 32; week++) {
+            play(live, week, false);
+        }
+        SaveManager.awaitMaintenance();
+
+        List<Integer> checkpoints = SaveManager.getBackupStore().listWeeks();
+        if (checkpoints.contains(4) || checkpoints.contains(8) || !checkpoints.contains(18)) {
+            System.out.println("Unexpected checkpoints after retention: " + checkpoints);
+            failures++;
+        }
+        if (SaveManager.getJournal().compact()) {
+            System.out.println("Maintenance left abandoned journal entries behind");
+            failures++;
+        }
+
+        List<Integer> available = SaveManager.listAvailableWeeks();
+        for (int week = 0; week <= 32; week++) {
+            if (!available.contains(week)) {
+                System.out.println("Week " + week + " is no longer available");
+                failures++;
+            }
+        }
+        for (int week : available) {
+            restore(week, "after compaction");
+        }
+
+        SaveManager.deleteAllSaves();
+        delete(new File("backups"));
+        delete(new File("export"));
+
+        System.out.println("Restored " + available.size() + " weeks from checkpoints " + checkpoints + " and the journal");
+        if (failures == 0) {
+            System.out.println("\n✓ Test PASSED: Every available week restores to the state it was played with");
+        } else {
+            System.out.println("\n✗ Test FAILED: " + failures + " restore checks failed");
+        }
+    }
+
+    private static void play(FactionRegistry registry, int week, boolean idle) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (!idle) {
+            for (Faction faction : registry.getFactionsInOrder()) {
+                lines.add("FACTION " + faction.getName());
+                lines.add("RESEARCH " + FIELDS[random.nextInt(FIELDS.length)]);
+                int soldiers = 1 + random.nextInt(5);
+                if (faction.getPopulation() > soldiers) {
+                    lines.add("ARMY_CREATE Company_" + week + ", " + soldiers);
+                }
+            }
+        }
+
+        long seed = random.nextLong();
+        SaveManager.journalWeek(registry, week, seed, lines);
+        CommandJournal.replayWeek(registry, seed, lines, null, resolver);
+        SaveManager.saveGameState(registry, week);
+        played.put(week, Files.readAllBytes(SaveManager.getSnapshotFile(week).toPath()));
+    }
+
+    private static void restore(int week, String step) throws IOException {
+        SaveManager.getWeekCache().clear();
+        FactionRegistry restored = TestWorld.createWorld(FACTIONS);
+        SaveManager.restoreWeek(restored, week);
+        byte[] snapshot = Files.readAllBytes(SaveManager.getSnapshotFile(week).toPath());
+        if (!Arrays.equals(played.get(week), snapshot)) {
+            System.out.println("Week " + week + " (" + step + ") restored differently from the live game");
+            failures++;
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,79 @@
+package test;
+
+import core.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+public class SnapshotIdTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Snapshot Id Test ===\n");
+
+        FactionRegistry saved = createWorld(false);
+        File directory = Files.createTempDirectory("snapshot_ids").toFile();
+        File snapshot = new File(directory, "world.week_1");
+        File mapped = new File(directory, "world.mapped");
+        BinarySnapshot.save(saved, 1, snapshot);
+        SnapshotConverter.exportText(saved, directory, 1);
+        MappedWorld world = MappedWorld.open(mapped, saved);
+        world.commit(saved, 1);
+        world.close();
+
+        int failures = 0;
+        for (int round = 0; round < 20; round++) {
+            FactionRegistry binary = createWorld(true);
+            BinarySnapshot.load(binary, snapshot);
+            failures += compare("binary", saved, binary);
+
+            FactionRegistry text = createWorld(true);
+            SnapshotConverter.importText(text, directory, 1);
+            failures += compare("text", saved, text);
+
+            FactionRegistry restored = createWorld(true);
+            world = MappedWorld.open(mapped, restored);
+            world.restore(restored);
+            world.close();
+            failures += compare("mapped", saved, restored);
+        }
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+
+        System.out.println("Loaded 20 rounds of binary, text and mapped saves over conflicting ids");
+        if (failures == 0) {
+            System.out.println("\n✓ Test PASSED: Loaded army and building ids match the save");
+        } else {
+            System.out.println("\n✗ Test FAILED: " + failures + " loads changed saved ids");
+        }
+    }
+
+    private static FactionRegistry createWorld(boolean reversed) throws IOException {
+        FactionRegistry registry = TestWorld.createWorld(8);
+        List<Faction> factions = registry.getFactionsInOrder();
+        for (int i = 0; i < factions.size(); i++) {
+            Faction faction = factions.get(reversed ? factions.size() - 1 - i : i);
+            faction.createArmy("Guard", 10);
+            faction.queueBuilding("Lumbermill");
+        }
+        return registry;
+    }
+
+    private static int compare(String format, FactionRegistry expected, FactionRegistry actual) throws IOException {
+        for (Faction faction : expected.getFactionsInOrder()) {
+            Faction loaded = actual.getFaction(faction.getName());
+            if (!Arrays.equals(TestWorld.render(faction), TestWorld.render(loaded))
+                    || faction.getArmy("Guard").getId() != loaded.getArmy("Guard").getId()
+                    || faction.getBuildingQueueView().get(0).getId() != loaded.getBuildingQueueView().get(0).getId()) {
+                System.out.println("Mismatch after " + format + " load: " + faction.getName() + " army #"
+                        + loaded.getArmy("Guard").getId() + ", expected #" + faction.getArmy("Guard").getId());
+                return 1;
+            }
+        }
+        return 0;
+    }
+}
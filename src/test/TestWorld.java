@@ -0,0 +1,51 @@
+package test;
+
+import core.Faction;
+import core.FactionRegistry;
+import core.FactionStateFormatter;
+import factions.Dwarfs;
+import factions.Humans;
+import factions.Ogres;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.function.ObjIntConsumer;
+
+public class TestWorld {
+
+    public static FactionRegistry createWorld(int factionCount) throws IOException {
+        return createWorld(factionCount, (faction, index) -> { });
+    }
+
+    public static FactionRegistry createWorld(int factionCount, ObjIntConsumer<Faction> setup) throws IOException {
+        FactionRegistry registry = new FactionRegistry();
+        for (int i = 0; i < factionCount; i++) {
+            Faction faction;
+            switch (i % 3) {
+                case 0:
+                    faction = new Dwarfs("dwarfs_" + i);
+                    break;
+                case 1:
+                    faction = new Humans("humans_" + i);
+                    break;
+                default:
+                    faction = new Ogres("ogres_" + i);
+            }
+            faction.loadFactionData();
+            setup.accept(faction, i);
+            registry.registerFaction(faction.getName(), faction);
+        }
+        return registry;
+    }
+
+    public static byte[] render(Faction faction) throws IOException {
+        File file = File.createTempFile("render_" + faction.getName(), ".week_0");
+        try {
+            FactionStateFormatter.save(faction, file);
+            return Files.readAllBytes(file.toPath());
+        } finally {
+            file.delete();
+        }
+    }
+}
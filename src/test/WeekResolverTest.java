@@ -0,0 +1,53 @@
+package test;
+
+import core.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class WeekResolverTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Week Resolver Test ===\n");
+
+        FactionRegistry sequential = createWorld(60);
+        FactionRegistry parallel = createWorld(60);
+
+        WeekResolver sequentialResolver = new WeekResolver(1);
+        WeekResolver parallelResolver = new WeekResolver(4);
+
+        for (int week = 1; week <= 12; week++) {
+            sequentialResolver.resolve(sequential);
+            parallelResolver.resolve(parallel);
+        }
+        int idleActors = parallelResolver.getRuntime().getActorCount();
+        parallelResolver.shutdown();
+
+        int mismatches = 0;
+        for (Faction faction : sequential.getFactionsInOrder()) {
+            byte[] expected = TestWorld.render(faction);
+            byte[] actual = TestWorld.render(parallel.getFaction(faction.getName()));
+            if (!Arrays.equals(expected, actual)) {
+                System.out.println("Mismatch: " + faction.getName());
+                mismatches++;
+            }
+        }
+
+        System.out.println("Compared " + sequential.getFactionsInOrder().size() + " factions over 12 weeks");
+        System.out.println("Actors left after the last barrier: " + idleActors);
+        if (idleActors != 0) {
+            System.out.println("\n✗ Test FAILED: actors outlive the barrier");
+        } else if (mismatches == 0) {
+            System.out.println("\n✓ Test PASSED: Parallel resolution matches sequential resolution");
+        } else {
+            System.out.println("\n✗ Test FAILED: " + mismatches + " factions differ");
+        }
+    }
+
+    private static FactionRegistry createWorld(int factionCount) throws IOException {
+        return TestWorld.createWorld(factionCount, (faction, i) -> {
+            if (i % 2 == 0) {
+                faction.createArmy("Guard", 100 + i);
+            }
+        });
+    }
+}